@@ -0,0 +1,108 @@
+package com.grades.bench;
+
+import com.grades.GradeManager;
+import com.grades.ReportWriter;
+import com.grades.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and class-level statistics on a populated roster. The "Cached"
+ * benchmarks read statistics that nothing has invalidated; the "AfterGrade"
+ * ones record a grade first, so the statistic has to be brought up to date.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class GradeManagerBenchmark {
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    @Param({"10", "100"})
+    public int gradesPerStudent;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public GradeManager.Storage storage;
+
+    private GradeManager manager;
+    private int[] lookups;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        manager = new GradeManager(storage);
+        for (int i = 0; i < rosterSize; i++) {
+            Student student = new Student("Student " + i, i);
+            manager.addStudent(student);
+            for (int g = 0; g < gradesPerStudent; g++) {
+                student.addGrade(random.nextInt(1001) / 10.0);
+            }
+        }
+        lookups = new int[4096];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = random.nextInt(rosterSize);
+        }
+    }
+
+    private int nextId() {
+        return lookups[next++ & (lookups.length - 1)];
+    }
+
+    @Benchmark
+    public Student findStudentById() {
+        return manager.findStudentById(nextId());
+    }
+
+    @Benchmark
+    public double classAverageCached() {
+        return manager.getClassAverage();
+    }
+
+    @Benchmark
+    public double classAverageAfterGrade() {
+        manager.addGrade(nextId(), 75.0);
+        return manager.getClassAverage();
+    }
+
+    @Benchmark
+    public Student topStudentCached() {
+        return manager.getTopStudent();
+    }
+
+    @Benchmark
+    public Student topStudentAfterGrade() {
+        manager.addGrade(nextId(), 75.0);
+        return manager.getTopStudent();
+    }
+
+    /**
+     * The full summary report plus the student table, written to a null sink
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void summaryReport() throws IOException {
+        manager.addGrade(nextId(), 75.0);
+        try (ReportWriter report = new ReportWriter(Writer.nullWriter())) {
+            report.writeSummary(manager.getClassSummary());
+            report.writeStudentTable(manager);
+        }
+    }
+}
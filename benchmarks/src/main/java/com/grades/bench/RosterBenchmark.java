@@ -0,0 +1,53 @@
+package com.grades.bench;
+
+import com.grades.GradeManager;
+import com.grades.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a roster from scratch with addStudent
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class RosterBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rosterSize;
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        names = new String[rosterSize];
+        for (int i = 0; i < rosterSize; i++) {
+            names[i] = "Student " + i;
+        }
+    }
+
+    /**
+     * Add rosterSize students to an empty manager
+     */
+    @Benchmark
+    public GradeManager addStudents() {
+        GradeManager manager = new GradeManager();
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(names[i], i));
+        }
+        return manager;
+    }
+}
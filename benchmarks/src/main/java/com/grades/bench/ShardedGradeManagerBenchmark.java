@@ -0,0 +1,104 @@
+package com.grades.bench;
+
+import com.grades.ClassSummary;
+import com.grades.ShardedGradeManager;
+import com.grades.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer threads sharing one sharded roster. Each operation records a grade
+ * for a random student and then reads the class summary, so it measures
+ * lock contention between writers plus the cost of merging the summary
+ * when only the written shards have changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ShardedGradeManagerBenchmark {
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    @Param({"1", "8"})
+    public int shardCount;
+
+    private ShardedGradeManager manager;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        manager = new ShardedGradeManager(shardCount);
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student("Student " + i, i));
+            for (int g = 0; g < 10; g++) {
+                manager.addGrade(i, random.nextInt(1001) / 10.0);
+            }
+        }
+    }
+
+    /**
+     * Student IDs drawn by one writer thread
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private final int[] ids = new int[4096];
+        private int next;
+
+        @Setup
+        public void setUp(ShardedGradeManagerBenchmark roster) {
+            SplittableRandom random = new SplittableRandom(42 + Thread.currentThread().getId());
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = random.nextInt(roster.rosterSize);
+            }
+        }
+
+        int nextId() {
+            return ids[next++ & (ids.length - 1)];
+        }
+    }
+
+    private ClassSummary gradeThenSummary(Writer writer) {
+        manager.addGrade(writer.nextId(), 75.0);
+        return manager.getClassSummary();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ClassSummary gradeThenSummary1Writer(Writer writer) {
+        return gradeThenSummary(writer);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public ClassSummary gradeThenSummary2Writers(Writer writer) {
+        return gradeThenSummary(writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ClassSummary gradeThenSummary4Writers(Writer writer) {
+        return gradeThenSummary(writer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ClassSummary gradeThenSummary8Writers(Writer writer) {
+        return gradeThenSummary(writer);
+    }
+}
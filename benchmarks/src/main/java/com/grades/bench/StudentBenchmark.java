@@ -0,0 +1,84 @@
+package com.grades.bench;
+
+import com.grades.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording grades on a single student and of its statistic getters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentBenchmark {
+    @Param({"10", "1000"})
+    public int gradesPerStudent;
+
+    private double[] grades;
+    private Student student;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        grades = new double[gradesPerStudent];
+        student = new Student("Benchmark", 1);
+        for (int i = 0; i < gradesPerStudent; i++) {
+            grades[i] = random.nextInt(1001) / 10.0;
+            student.addGrade(grades[i]);
+        }
+    }
+
+    /**
+     * Fill a fresh student with gradesPerStudent grades
+     */
+    @Benchmark
+    public Student addGrades() {
+        Student s = new Student("Benchmark", 2);
+        for (double grade : grades) {
+            s.addGrade(grade);
+        }
+        return s;
+    }
+
+    @Benchmark
+    public double averageGrade() {
+        return student.getAverageGrade();
+    }
+
+    @Benchmark
+    public void highestAndLowest(Blackhole bh) {
+        bh.consume(student.getHighestGrade());
+        bh.consume(student.getLowestGrade());
+    }
+
+    @Benchmark
+    public char letterGrade() {
+        return student.getLetterGrade();
+    }
+
+    @Benchmark
+    public double medianGrade() {
+        return student.getMedianGrade();
+    }
+
+    @Benchmark
+    public double standardDeviation() {
+        return student.getStandardDeviation();
+    }
+}
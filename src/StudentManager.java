@@ -1,29 +1,66 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class StudentManager {
     private ArrayList<Student> students = new ArrayList<>();
+    // Case-folded name -> position in students, for O(1) exact lookup
+    private HashMap<String, Integer> positions = new HashMap<>();
+    // Case-folded name -> student, sorted for prefix search
+    private TreeMap<String, Student> byName = new TreeMap<>();
 
     public boolean addStudent(String name) {
-        if (findStudent(name) != null) return false;
-        students.add(new Student(name));
+        String key = fold(name);
+        if (positions.containsKey(key)) return false;
+        Student s = new Student(name);
+        positions.put(key, students.size());
+        students.add(s);
+        byName.put(key, s);
         return true;
     }
 
     public Student findStudent(String name) {
-        for (Student s : students) if (s.getName().equalsIgnoreCase(name)) return s;
-        return null;
+        Integer i = positions.get(fold(name));
+        return i == null ? null : students.get(i);
     }
 
+    // All students whose name starts with prefix, ignoring case, sorted by name
+    public List<Student> findByPrefix(String prefix) {
+        String key = fold(prefix);
+        List<Student> found = new ArrayList<>();
+        for (Map.Entry<String, Student> e : byName.tailMap(key).entrySet()) {
+            if (!e.getKey().startsWith(key)) break;
+            found.add(e.getValue());
+        }
+        return found;
+    }
+
+    // Swap-remove: the last student takes the removed one's place, so the list order changes
     public boolean removeStudent(String name) {
-        Student s = findStudent(name);
-        if (s == null) return false;
-        students.remove(s);
+        String key = fold(name);
+        Integer i = positions.remove(key);
+        if (i == null) return false;
+        byName.remove(key);
+        Student last = students.remove(students.size() - 1);
+        if (i < students.size()) {
+            students.set(i, last);
+            positions.put(fold(last.getName()), i);
+        }
         return true;
     }
 
     public List<Student> getStudents() {
-        return students;
+        return Collections.unmodifiableList(students);
+    }
+
+    // Same folding as equalsIgnoreCase: each code point upper-cased, then lower-cased
+    private static String fold(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        name.codePoints().forEach(cp -> sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp))));
+        return sb.toString();
     }
 
     public String summaryReport() {
@@ -0,0 +1,329 @@
+package com.grades;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Headless command mode for scripted runs. Reads one command per line,
+ * prints no prompts and writes all output through a buffered ReportWriter.
+ * Lines are tokenized straight from a byte buffer, so scripted loads run
+ * at memory speed.
+ *
+ * Commands (keywords are case-insensitive, # starts a comment):
+ * <pre>
+ * ADD id name           add a student
+ * GRADE id grade...     add one or more grades to a student
+ * REMOVE id             remove a student
+ * SHOW id               print one student
+ * REPORT                print the class summary report
+ * LIST [order] [offset] [limit]
+ *                       print the student table; order is one of
+ *                       INSERTION, ID, NAME, AVERAGE_DESC, AVERAGE_ASC
+ * TOP k / BOTTOM k      print the k best / worst students by average
+ * RANK id               print a student's rank by average
+ * STATS                 print the operation metrics as one line of JSON
+ * QUIT                  stop reading commands
+ * </pre>
+ * Failed commands are reported on the error stream with their line number.
+ */
+public class BatchRunner {
+    /** Exit status when every command succeeded */
+    public static final int EXIT_OK = 0;
+    /** Exit status when at least one command failed */
+    public static final int EXIT_FAILED_COMMANDS = 1;
+    /** Exit status when the input could not be read */
+    public static final int EXIT_ERROR = 2;
+
+    private final GradeManager manager;
+    private final ReportWriter out;
+    private final PrintStream err;
+
+    private byte[] buf = new byte[1 << 16];
+    private ByteBuffer view = ByteBuffer.wrap(buf);
+    private int pos;
+    private int end;
+    private double[] pending = new double[16];
+    private long lineNumber;
+    private long failures;
+
+    /**
+     * Constructor for a runner writing to the console
+     * @param manager The manager the commands act on
+     */
+    public BatchRunner(GradeManager manager) {
+        this(manager, ReportWriter.toStdout(), System.err);
+    }
+
+    /**
+     * Constructor for a runner with explicit outputs
+     * @param manager The manager the commands act on
+     * @param out Where command output is written
+     * @param err Where failed commands are reported
+     */
+    public BatchRunner(GradeManager manager, ReportWriter out, PrintStream err) {
+        this.manager = manager;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Run every command of a stream
+     * @param in The command stream
+     * @return EXIT_OK, EXIT_FAILED_COMMANDS or EXIT_ERROR
+     */
+    public int run(InputStream in) {
+        try {
+            int lineStart;
+            while ((lineStart = nextLine(in)) >= 0) {
+                int lineEnd = pos - 1;
+                if (lineEnd > lineStart && buf[lineEnd - 1] == '\r') {
+                    lineEnd--;
+                }
+                lineNumber++;
+                if (!execute(lineStart, lineEnd)) {
+                    break;
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            err.println("Batch input failed: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        return failures == 0 ? EXIT_OK : EXIT_FAILED_COMMANDS;
+    }
+
+    /**
+     * Get the number of commands that failed
+     * @return Number of failed commands
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Run one command line
+     * @return false if the script asked to stop
+     */
+    private boolean execute(int start, int end) throws IOException {
+        int cmdStart = skipBlanks(start, end);
+        if (cmdStart == end || buf[cmdStart] == '#') {
+            return true;
+        }
+        int cmdEnd = tokenEnd(cmdStart, end);
+        int args = skipBlanks(cmdEnd, end);
+        try {
+            if (keyword(cmdStart, cmdEnd, "GRADE")) {
+                int idEnd = tokenEnd(args, end);
+                int id = parseId(args, idEnd);
+                Student student = manager.findStudentById(id);
+                if (student == null) {
+                    throw new IllegalArgumentException("Student with ID " + id + " not found");
+                }
+                int p = skipBlanks(idEnd, end);
+                if (p == end) {
+                    throw new IllegalArgumentException("GRADE needs at least one grade");
+                }
+                // Check every grade first so a bad line changes nothing
+                int count = 0;
+                while (p < end) {
+                    int q = tokenEnd(p, end);
+                    double grade = BulkImporter.parseGrade(view, p, q);
+                    if (Double.isNaN(grade)) {
+                        throw new IllegalArgumentException("Invalid grade: " + text(p, q));
+                    }
+                    Student.checkGrade(grade);
+                    if (count == pending.length) {
+                        pending = Arrays.copyOf(pending, count << 1);
+                    }
+                    pending[count++] = grade;
+                    p = skipBlanks(q, end);
+                }
+                for (int i = 0; i < count; i++) {
+                    student.addGrade(pending[i]);
+                }
+            } else if (keyword(cmdStart, cmdEnd, "ADD")) {
+                int idEnd = tokenEnd(args, end);
+                int id = parseId(args, idEnd);
+                String name = text(skipBlanks(idEnd, end), end).trim();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Name cannot be empty");
+                }
+                manager.addStudent(new Student(name, id));
+            } else if (keyword(cmdStart, cmdEnd, "REMOVE")) {
+                int id = parseId(args, tokenEnd(args, end));
+                if (!manager.removeStudent(id)) {
+                    throw new IllegalArgumentException("Student with ID " + id + " not found");
+                }
+            } else if (keyword(cmdStart, cmdEnd, "SHOW")) {
+                int id = parseId(args, tokenEnd(args, end));
+                Student student = manager.findStudentById(id);
+                if (student == null) {
+                    throw new IllegalArgumentException("Student with ID " + id + " not found");
+                }
+                out.line(student.toString());
+            } else if (keyword(cmdStart, cmdEnd, "REPORT")) {
+                out.writeSummary(manager.getClassSummary());
+            } else if (keyword(cmdStart, cmdEnd, "LIST")) {
+                list(args, end);
+            } else if (keyword(cmdStart, cmdEnd, "TOP") || keyword(cmdStart, cmdEnd, "BOTTOM")) {
+                int k = parseId(args, tokenEnd(args, end));
+                boolean bottom = keyword(cmdStart, cmdEnd, "BOTTOM");
+                for (Student s : bottom ? manager.getBottomStudents(k) : manager.getTopStudents(k)) {
+                    out.line(s.toString());
+                }
+            } else if (keyword(cmdStart, cmdEnd, "RANK")) {
+                int id = parseId(args, tokenEnd(args, end));
+                int rank = manager.getRank(id);
+                if (rank < 0) {
+                    throw new IllegalArgumentException("Student with ID " + id + " not found");
+                }
+                out.line(id + " " + rank + "/" + manager.getStudentCount());
+            } else if (keyword(cmdStart, cmdEnd, "STATS")) {
+                GradeMetrics metrics = manager.getMetrics();
+                if (metrics == null) {
+                    throw new IllegalArgumentException("Metrics are disabled; run with --metrics");
+                }
+                out.line(metrics.toJson());
+            } else if (keyword(cmdStart, cmdEnd, "QUIT") || keyword(cmdStart, cmdEnd, "EXIT")) {
+                return false;
+            } else {
+                throw new IllegalArgumentException("Unknown command: " + text(cmdStart, cmdEnd));
+            }
+        } catch (RuntimeException e) {
+            // Any failure of one command is reported for its line; the run goes on
+            failures++;
+            err.println("line " + lineNumber + ": " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+        return true;
+    }
+
+    private void list(int p, int end) throws IOException {
+        ReportWriter.SortOrder order = ReportWriter.SortOrder.INSERTION;
+        int offset = 0;
+        int limit = Integer.MAX_VALUE;
+        if (p < end && !isDigit(buf[p])) {
+            int q = tokenEnd(p, end);
+            try {
+                order = ReportWriter.SortOrder.valueOf(text(p, q).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort order: " + text(p, q));
+            }
+            p = skipBlanks(q, end);
+        }
+        if (p < end) {
+            int q = tokenEnd(p, end);
+            offset = parseId(p, q);
+            p = skipBlanks(q, end);
+        }
+        if (p < end) {
+            limit = parseId(p, tokenEnd(p, end));
+        }
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        out.writeStudentTable(manager, order, offset, limit);
+    }
+
+    /**
+     * Make sure a whole line is in the buffer
+     * @return Start of the next line, or -1 at end of input
+     */
+    private int nextLine(InputStream in) throws IOException {
+        int scan = pos;
+        while (true) {
+            for (; scan < end; scan++) {
+                if (buf[scan] == '\n') {
+                    int start = pos;
+                    pos = scan + 1;
+                    return start;
+                }
+            }
+            // No newline buffered: keep the partial line and read more
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, end - pos);
+                scan -= pos;
+                end -= pos;
+                pos = 0;
+            }
+            if (end == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length << 1);
+                view = ByteBuffer.wrap(buf);
+            }
+            int n = in.read(buf, end, buf.length - end);
+            if (n < 0) {
+                if (end == pos) {
+                    return -1;
+                }
+                // Last line without a newline
+                if (end == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length + 1);
+                    view = ByteBuffer.wrap(buf);
+                }
+                buf[end++] = '\n';
+            } else {
+                end += n;
+            }
+        }
+    }
+
+    private int parseId(int start, int end) {
+        int p = start;
+        boolean negative = p < end && buf[p] == '-';
+        if (negative) {
+            p++;
+        }
+        if (p == end) {
+            throw new IllegalArgumentException("Missing number");
+        }
+        long value = 0;
+        for (; p < end; p++) {
+            if (!isDigit(buf[p]) || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid number: " + text(start, end));
+            }
+            value = value * 10 + (buf[p] - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number: " + text(start, end));
+        }
+        return (int) value;
+    }
+
+    private boolean keyword(int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if ((buf[start + i] & 0xDF) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipBlanks(int p, int end) {
+        while (p < end && (buf[p] == ' ' || buf[p] == '\t')) {
+            p++;
+        }
+        return p;
+    }
+
+    private int tokenEnd(int p, int end) {
+        while (p < end && buf[p] != ' ' && buf[p] != '\t') {
+            p++;
+        }
+        return p;
+    }
+
+    private String text(int start, int end) {
+        return new String(buf, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
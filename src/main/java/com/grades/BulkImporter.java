@@ -0,0 +1,514 @@
+package com.grades;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads (id, name, grade) rows from CSV or TSV files into a GradeManager.
+ * The file is split into chunks on line boundaries; chunks are memory-mapped
+ * and parsed in parallel straight from the bytes, without creating a String
+ * per field. Parsed chunks are merged into the manager in file order on the
+ * calling thread, since GradeManager is not thread-safe.
+ *
+ * Each line is {@code id,name,grade} (or tab separated). The name may be
+ * quoted, and the grade may be empty to register a student without a grade.
+ * A first line whose ID is not a number is treated as a header.
+ */
+public class BulkImporter {
+    /** Default number of bytes per parsed chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    private static final double NO_GRADE = Double.NaN;
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructor for an importer using every available core
+     */
+    public BulkImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor for an importer with explicit parallelism
+     * @param threads Number of parser threads
+     * @param chunkSize Approximate number of bytes per chunk
+     */
+    public BulkImporter(int threads, int chunkSize) {
+        if (threads <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Threads and chunk size must be positive");
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import every row of a file into a manager
+     * @param file CSV or TSV file to read
+     * @param manager The manager to add students and grades to
+     * @return Counts of imported and rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importFile(Path file, GradeManager manager) throws IOException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-import");
+            t.setDaemon(true);
+            return t;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            byte delimiter = detectDelimiter(channel);
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            // Parse ahead of the merge, but bound how many chunks are held
+            while (next < bounds.length - 1 || !inFlight.isEmpty()) {
+                while (next < bounds.length - 1 && inFlight.size() < threads * 2) {
+                    long from = bounds[next];
+                    long to = bounds[next + 1];
+                    boolean first = next == 0;
+                    inFlight.add(pool.submit(() -> parse(channel, from, to, delimiter, first)));
+                    next++;
+                }
+                merge(await(inFlight.poll()), manager, result);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Split the file into ranges of about chunkSize bytes ending at line breaks
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[(int) (size / chunkSize) + 2];
+        int count = 0;
+        bounds[count++] = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunkSize;
+        while (pos < size) {
+            // Advance to just past the next newline
+            long end = -1;
+            long scan = pos;
+            while (end < 0 && scan < size) {
+                probe.clear();
+                int n = channel.read(probe, scan);
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        end = scan + i + 1;
+                        break;
+                    }
+                }
+                scan += n;
+            }
+            if (end < 0 || end >= size) {
+                break;
+            }
+            if (end > bounds[count - 1]) {
+                bounds[count++] = end;
+            }
+            pos = end + chunkSize;
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static byte detectDelimiter(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(4096);
+        int n = channel.read(head, 0);
+        for (int i = 0; i < n; i++) {
+            byte b = head.get(i);
+            if (b == '\t' || b == ',') {
+                return b;
+            }
+            if (b == '\n') {
+                break;
+            }
+        }
+        return ',';
+    }
+
+    /**
+     * Parse one chunk of lines into primitive columns
+     */
+    private static Chunk parse(FileChannel channel, long from, long to, byte delimiter, boolean first)
+            throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int limit = buf.limit();
+        Chunk chunk = new Chunk(buf, Math.max(16, limit / 24));
+        int pos = 0;
+        boolean header = first;
+        while (pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd;
+            if (end > pos && buf.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > pos) {
+                parseLine(buf, pos, end, delimiter, chunk, header);
+            }
+            header = false;
+            pos = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static void parseLine(ByteBuffer buf, int pos, int end, byte delimiter, Chunk chunk, boolean mayBeHeader) {
+        chunk.lines++;
+        // ID
+        pos = skipSpaces(buf, pos, end);
+        boolean negative = pos < end && buf.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        int digitsStart = pos;
+        long id = 0;
+        while (pos < end && buf.get(pos) >= '0' && buf.get(pos) <= '9' && id <= Integer.MAX_VALUE) {
+            id = id * 10 + (buf.get(pos++) - '0');
+        }
+        boolean noDigits = pos == digitsStart;
+        pos = skipSpaces(buf, pos, end);
+        if (noDigits || id > Integer.MAX_VALUE || pos >= end || buf.get(pos) != delimiter) {
+            if (mayBeHeader) {
+                chunk.lines--;
+            } else {
+                chunk.malformed++;
+            }
+            return;
+        }
+        pos++;
+
+        // Name, optionally quoted
+        pos = skipSpaces(buf, pos, end);
+        int nameStart;
+        int nameEnd;
+        if (pos < end && buf.get(pos) == '"') {
+            nameStart = ++pos;
+            while (pos < end && !(buf.get(pos) == '"' && (pos + 1 >= end || buf.get(pos + 1) != '"'))) {
+                pos += buf.get(pos) == '"' ? 2 : 1;
+            }
+            nameEnd = pos;
+            pos = skipSpaces(buf, Math.min(end, pos + 1), end);
+        } else {
+            nameStart = pos;
+            while (pos < end && buf.get(pos) != delimiter) {
+                pos++;
+            }
+            nameEnd = pos;
+            while (nameEnd > nameStart && buf.get(nameEnd - 1) == ' ') {
+                nameEnd--;
+            }
+        }
+
+        // Grade, optional
+        double grade = NO_GRADE;
+        if (pos < end) {
+            if (buf.get(pos) != delimiter) {
+                chunk.malformed++;
+                return;
+            }
+            pos = skipSpaces(buf, pos + 1, end);
+            int gradeEnd = end;
+            while (gradeEnd > pos && buf.get(gradeEnd - 1) == ' ') {
+                gradeEnd--;
+            }
+            if (gradeEnd > pos) {
+                grade = parseGrade(buf, pos, gradeEnd);
+                if (Double.isNaN(grade)) {
+                    chunk.malformed++;
+                    return;
+                }
+                if (grade < 0 || grade > 100) {
+                    chunk.invalidGrades++;
+                    return;
+                }
+            }
+        }
+        chunk.add((int) (negative ? -id : id), nameStart, nameEnd, grade);
+    }
+
+    /**
+     * Parse a plain decimal such as 93 or 93.25 without allocating.
+     * The digits are accumulated as an integer and divided once by a power
+     * of ten, which gives the same correctly rounded double as
+     * Double.parseDouble for up to 15 significant digits.
+     * @return The value, or NaN if the text is not a plain decimal
+     */
+    static double parseGrade(ByteBuffer buf, int start, int end) {
+        int pos = start;
+        boolean negative = buf.get(pos) == '-';
+        if (negative || buf.get(pos) == '+') {
+            pos++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int scale = -1;
+        boolean sawDigit = false;
+        for (; pos < end; pos++) {
+            byte b = buf.get(pos);
+            if (b >= '0' && b <= '9') {
+                if (significant == 15) {
+                    return parseSlow(buf, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+                if (scale >= 0) {
+                    scale++;
+                }
+                sawDigit = true;
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return parseSlow(buf, start, end);
+            }
+        }
+        if (!sawDigit) {
+            return NO_GRADE;
+        }
+        if (scale >= POWERS_OF_TEN.length) {
+            // Leading zeros of the fraction are not significant but still need a power of ten
+            return parseSlow(buf, start, end);
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Fallback for exponents and very long numbers: decode the field and
+     * let the JDK parse it
+     */
+    private static double parseSlow(ByteBuffer buf, int start, int end) {
+        byte[] text = new byte[end - start];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = buf.get(start + i);
+        }
+        try {
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return NO_GRADE;
+        }
+    }
+
+    private static int skipSpaces(ByteBuffer buf, int pos, int end) {
+        while (pos < end && buf.get(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Apply a parsed chunk to the manager: create students on first sight,
+     * then add the chunk's grades as one batch
+     */
+    private static void merge(Chunk chunk, GradeManager manager, ImportResult result) {
+        result.rows += chunk.lines;
+        result.malformedRows += chunk.malformed;
+        result.invalidGrades += chunk.invalidGrades;
+        int[] gradeIds = new int[chunk.size];
+        double[] grades = new double[chunk.size];
+        int gradeRows = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            int id = chunk.ids[i];
+            Student student = manager.findStudentById(id);
+            if (student == null) {
+                String name = chunk.name(i);
+                if (name.isEmpty()) {
+                    result.unknownStudents++;
+                    continue;
+                }
+                manager.addStudent(new Student(name, id));
+                result.studentsAdded++;
+            }
+            if (!Double.isNaN(chunk.grades[i])) {
+                gradeIds[gradeRows] = id;
+                grades[gradeRows++] = chunk.grades[i];
+            }
+        }
+        if (gradeRows < chunk.size) {
+            gradeIds = Arrays.copyOf(gradeIds, gradeRows);
+            grades = Arrays.copyOf(grades, gradeRows);
+        }
+        // Every ID exists and every grade was range-checked while parsing
+        manager.addGrades(gradeIds, grades);
+        result.gradesAdded += gradeRows;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Import failed", e.getCause());
+        }
+    }
+
+    /**
+     * Rows of one chunk as parallel primitive arrays. Names stay as byte
+     * ranges of the mapped chunk and are only decoded for new students.
+     */
+    private static final class Chunk {
+        final ByteBuffer bytes;
+        int[] ids;
+        int[] nameStarts;
+        int[] nameEnds;
+        double[] grades;
+        int size;
+        long lines;
+        long malformed;
+        long invalidGrades;
+
+        Chunk(ByteBuffer bytes, int capacity) {
+            this.bytes = bytes;
+            this.ids = new int[capacity];
+            this.nameStarts = new int[capacity];
+            this.nameEnds = new int[capacity];
+            this.grades = new double[capacity];
+        }
+
+        void add(int id, int nameStart, int nameEnd, double grade) {
+            if (size == ids.length) {
+                int capacity = size << 1;
+                ids = Arrays.copyOf(ids, capacity);
+                nameStarts = Arrays.copyOf(nameStarts, capacity);
+                nameEnds = Arrays.copyOf(nameEnds, capacity);
+                grades = Arrays.copyOf(grades, capacity);
+            }
+            ids[size] = id;
+            nameStarts[size] = nameStart;
+            nameEnds[size] = nameEnd;
+            grades[size] = grade;
+            size++;
+        }
+
+        String name(int row) {
+            byte[] text = new byte[nameEnds[row] - nameStarts[row]];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = bytes.get(nameStarts[row] + i);
+            }
+            String name = new String(text, StandardCharsets.UTF_8).trim();
+            return name.indexOf('"') >= 0 ? name.replace("\"\"", "\"") : name;
+        }
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class ImportResult {
+        private long rows;
+        private long studentsAdded;
+        private long gradesAdded;
+        private long malformedRows;
+        private long invalidGrades;
+        private long unknownStudents;
+        private long elapsedNanos;
+
+        /**
+         * Get the number of data rows read (excluding a header)
+         * @return Number of rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Get the number of students created
+         * @return Number of new students
+         */
+        public long getStudentsAdded() {
+            return studentsAdded;
+        }
+
+        /**
+         * Get the number of grades added
+         * @return Number of grades
+         */
+        public long getGradesAdded() {
+            return gradesAdded;
+        }
+
+        /**
+         * Get the number of rows that could not be parsed
+         * @return Number of malformed rows
+         */
+        public long getMalformedRows() {
+            return malformedRows;
+        }
+
+        /**
+         * Get the number of rows whose grade was outside 0-100
+         * @return Number of rows with an invalid grade
+         */
+        public long getInvalidGrades() {
+            return invalidGrades;
+        }
+
+        /**
+         * Get the number of rows for an unknown ID with no name to create it
+         * @return Number of rows for unknown students
+         */
+        public long getUnknownStudents() {
+            return unknownStudents;
+        }
+
+        /**
+         * Get the total number of rejected rows
+         * @return Number of rejected rows
+         */
+        public long getRejectedRows() {
+            return malformedRows + invalidGrades + unknownStudents;
+        }
+
+        /**
+         * Get how long the import took
+         * @return Elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get the import throughput
+         * @return Rows per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Rows: %d | Students added: %d | Grades added: %d | Rejected: %d | %.0f rows/s",
+                    rows, studentsAdded, gradesAdded, getRejectedRows(), getRowsPerSecond());
+        }
+    }
+}
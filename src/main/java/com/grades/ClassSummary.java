@@ -0,0 +1,150 @@
+package com.grades;
+
+/**
+ * Immutable class-wide statistics, computed in a single pass over all students
+ */
+public final class ClassSummary {
+    private final int studentCount;
+    private final double classAverage;
+    private final double classHighest;
+    private final double classLowest;
+    private final Student topStudent;
+    private final double topAverage;
+    private final Student bottomStudent;
+    private final double bottomAverage;
+    private final long gradeCount;
+    private final double medianGrade;
+    private final double standardDeviation;
+    private final long[] letterCounts;
+
+    /**
+     * Constructor for a class summary
+     * @param studentCount Number of students
+     * @param classAverage Average of all student averages
+     * @param classHighest Highest grade in the class
+     * @param classLowest Lowest grade in the class
+     * @param topStudent Student with the highest average, or null
+     * @param topAverage Average of the top student
+     * @param bottomStudent Student with the lowest average, or null
+     * @param bottomAverage Average of the bottom student
+     * @param distribution Histogram of every grade in the class
+     */
+    ClassSummary(int studentCount, double classAverage, double classHighest, double classLowest,
+                 Student topStudent, double topAverage, Student bottomStudent, double bottomAverage,
+                 GradeHistogram distribution) {
+        this.studentCount = studentCount;
+        this.classAverage = classAverage;
+        this.classHighest = classHighest;
+        this.classLowest = classLowest;
+        this.topStudent = topStudent;
+        this.topAverage = topAverage;
+        this.bottomStudent = bottomStudent;
+        this.bottomAverage = bottomAverage;
+        this.gradeCount = distribution.getCount();
+        this.medianGrade = distribution.getMedian();
+        this.standardDeviation = distribution.getStandardDeviation();
+        this.letterCounts = distribution.getLetterCounts();
+    }
+
+    /**
+     * Get the number of students
+     * @return Number of students
+     */
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    /**
+     * Get the class average
+     * @return The average of all student averages, or 0 if no students
+     */
+    public double getClassAverage() {
+        return classAverage;
+    }
+
+    /**
+     * Get the highest grade in the class
+     * @return The highest grade, or 0 if no students
+     */
+    public double getClassHighest() {
+        return classHighest;
+    }
+
+    /**
+     * Get the lowest grade in the class
+     * @return The lowest grade, or 0 if no students
+     */
+    public double getClassLowest() {
+        return classLowest;
+    }
+
+    /**
+     * Get top performer (highest average)
+     * @return The student with highest average, or null if no students
+     */
+    public Student getTopStudent() {
+        return topStudent;
+    }
+
+    /**
+     * Get the average of the top performer
+     * @return The top student's average, or 0 if no students
+     */
+    public double getTopAverage() {
+        return topAverage;
+    }
+
+    /**
+     * Get student who needs most help (lowest average)
+     * @return The student with lowest average, or null if no students
+     */
+    public Student getBottomStudent() {
+        return bottomStudent;
+    }
+
+    /**
+     * Get the average of the bottom student
+     * @return The bottom student's average, or 0 if no students
+     */
+    public double getBottomAverage() {
+        return bottomAverage;
+    }
+
+    /**
+     * Get the number of grades across the class
+     * @return Number of grades
+     */
+    public long getGradeCount() {
+        return gradeCount;
+    }
+
+    /**
+     * Get the median of every grade in the class
+     * @return The median (to 0.1), or 0 if no grades exist
+     */
+    public double getMedianGrade() {
+        return medianGrade;
+    }
+
+    /**
+     * Get the population standard deviation of every grade in the class
+     * @return The standard deviation, or 0 if no grades exist
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Get how many grades in the class earn each letter
+     * @return Counts for A, B, C, D and F, in that order
+     */
+    public long[] getLetterCounts() {
+        return letterCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Students: %d | Avg: %.2f | Highest: %.1f | Lowest: %.1f",
+                studentCount, classAverage, classHighest, classLowest);
+    }
+}
@@ -0,0 +1,315 @@
+package com.grades;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe manager for ingesting students and grades from many threads.
+ * Registration and lookup go through a ConcurrentHashMap. Grades are added
+ * under one of a fixed set of striped locks chosen by student ID, so
+ * writers for different students rarely contend. Readers use optimistic
+ * stamps, so they do not block writers; after a few failed validations
+ * they take the stripe read lock, so a steady writer cannot starve them.
+ *
+ * A student held here belongs to this manager until removed, and
+ * Student.addGrade goes through the student's stripe lock.
+ */
+public class ConcurrentGradeManager {
+    private static final int STRIPES = 64;
+    // Optimistic reads tried before falling back to the stripe read lock
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    private final ConcurrentHashMap<Integer, Student> students = new ConcurrentHashMap<>();
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+    // Grades of the students in each stripe, guarded by the stripe lock
+    private final GradeHistogram[] histograms = new GradeHistogram[STRIPES];
+    private final LongAdder gradeCount = new LongAdder();
+
+    /**
+     * Constructor for ConcurrentGradeManager
+     */
+    public ConcurrentGradeManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new StampedLock();
+            histograms[i] = new GradeHistogram();
+        }
+    }
+
+    /**
+     * Add a new student to the system
+     * @param student The student to add
+     * @throws IllegalArgumentException if student ID already exists
+     *         or the student already belongs to another manager
+     */
+    public void addStudent(Student student) {
+        int stripe = stripeOf(student.getId());
+        long stamp = locks[stripe].writeLock();
+        try {
+            if (students.containsKey(student.getId())) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+            }
+            if (student.manager != null || student.concurrentManager != null) {
+                throw new IllegalArgumentException("Student with ID " + student.getId() + " belongs to another manager");
+            }
+            student.concurrentManager = this;
+            students.put(student.getId(), student);
+            student.forEachGrade(histograms[stripe]::add);
+            gradeCount.add(student.getGradeCount());
+        } finally {
+            locks[stripe].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a student by ID
+     * @param studentId The ID of the student to remove
+     * @return true if student was removed, false if not found
+     */
+    public boolean removeStudent(int studentId) {
+        int stripe = stripeOf(studentId);
+        long stamp = locks[stripe].writeLock();
+        try {
+            Student removed = students.remove(studentId);
+            if (removed == null) {
+                return false;
+            }
+            removed.concurrentManager = null;
+            removed.forEachGrade(histograms[stripe]::remove);
+            gradeCount.add(-removed.getGradeCount());
+            return true;
+        } finally {
+            locks[stripe].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Find a student by ID
+     * @param studentId The ID to search for
+     * @return The student, or null if not found
+     */
+    public Student findStudentById(int studentId) {
+        return students.get(studentId);
+    }
+
+    /**
+     * Add a grade to a student by ID. Only the student's stripe is locked.
+     * @param studentId The ID of the student
+     * @param grade The grade to add (0-100)
+     * @return true if the grade was added, false if the student was not found
+     * @throws IllegalArgumentException if grade is invalid
+     */
+    public boolean addGrade(int studentId, double grade) {
+        Student.checkGrade(grade);
+        int stripe = stripeOf(studentId);
+        long stamp = locks[stripe].writeLock();
+        try {
+            // Looked up under the lock so a concurrent removal cannot lose the grade
+            Student student = students.get(studentId);
+            if (student == null) {
+                return false;
+            }
+            student.appendGrade(grade);
+            histograms[stripe].add(grade);
+        } finally {
+            locks[stripe].unlockWrite(stamp);
+        }
+        gradeCount.increment();
+        return true;
+    }
+
+    /**
+     * Add a grade to a student of this manager, for Student.addGrade
+     * @param student The student, which belonged here when its owner was read
+     * @param grade The grade, already validated
+     */
+    void applyGrade(Student student, double grade) {
+        int stripe = stripeOf(student.getId());
+        long stamp = locks[stripe].writeLock();
+        try {
+            if (students.get(student.getId()) != student) {
+                // Removed since the caller read its owner, so ask the new one
+                locks[stripe].unlockWrite(stamp);
+                stamp = 0;
+                student.addGrade(grade);
+                return;
+            }
+            student.appendGrade(grade);
+            histograms[stripe].add(grade);
+        } finally {
+            if (stamp != 0) {
+                locks[stripe].unlockWrite(stamp);
+            }
+        }
+        gradeCount.increment();
+    }
+
+    /**
+     * Get all students
+     * @return List of all students, in no particular order
+     */
+    public List<Student> getAllStudents() {
+        return new ArrayList<>(students.values());
+    }
+
+    /**
+     * Get the number of students
+     * @return Number of students
+     */
+    public int getStudentCount() {
+        return students.size();
+    }
+
+    /**
+     * Get the number of grades across all students
+     * @return Number of grades
+     */
+    public long getTotalGradeCount() {
+        return gradeCount.sum();
+    }
+
+    /**
+     * Read a student's average without blocking writers
+     * @param studentId The ID of the student
+     * @return The average grade, or 0 if the student is not found
+     */
+    public double getAverageGrade(int studentId) {
+        Student student = students.get(studentId);
+        if (student == null) {
+            return 0.0;
+        }
+        StampedLock lock = locks[stripeOf(studentId)];
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                double average = student.getAverageGrade();
+                if (lock.validate(stamp)) {
+                    return average;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = lock.readLock();
+        try {
+            return student.getAverageGrade();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Compute class-wide statistics. Each student is read consistently,
+     * but grades added while the pass runs may or may not be included.
+     * Students with equal averages are ordered by ID.
+     * @return The class summary
+     */
+    public ClassSummary getClassSummary() {
+        double[] stats = new double[3];
+        int count = 0;
+        double totalAverage = 0;
+        double max = 0;
+        double min = 0;
+        Student top = null;
+        Student bottom = null;
+        double topAverage = 0;
+        double bottomAverage = 0;
+        for (Student s : students.values()) {
+            readStats(s, stats);
+            double average = stats[0];
+            if (count == 0) {
+                max = stats[1];
+                min = stats[2];
+            } else {
+                max = Math.max(max, stats[1]);
+                min = Math.min(min, stats[2]);
+            }
+            if (top == null || average > topAverage || (average == topAverage && s.getId() < top.getId())) {
+                top = s;
+                topAverage = average;
+            }
+            if (bottom == null || average < bottomAverage
+                    || (average == bottomAverage && s.getId() < bottom.getId())) {
+                bottom = s;
+                bottomAverage = average;
+            }
+            totalAverage += average;
+            count++;
+        }
+        GradeHistogram distribution = mergeHistograms();
+        if (count == 0) {
+            return new ClassSummary(0, 0.0, 0.0, 0.0, null, 0.0, null, 0.0, distribution);
+        }
+        return new ClassSummary(count, totalAverage / count, max, min,
+                top, topAverage, bottom, bottomAverage, distribution);
+    }
+
+    /**
+     * Read average, highest and lowest grade of a student consistently
+     */
+    private void readStats(Student s, double[] stats) {
+        StampedLock lock = locks[stripeOf(s.getId())];
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                copyStats(s, stats);
+                if (lock.validate(stamp)) {
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = lock.readLock();
+        try {
+            copyStats(s, stats);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static void copyStats(Student s, double[] stats) {
+        stats[0] = s.getAverageGrade();
+        stats[1] = s.getHighestGrade();
+        stats[2] = s.getLowestGrade();
+    }
+
+    /**
+     * Merge the per-stripe histograms into one class-wide histogram
+     */
+    private GradeHistogram mergeHistograms() {
+        GradeHistogram merged = new GradeHistogram();
+        GradeHistogram copy = new GradeHistogram();
+        for (int i = 0; i < STRIPES; i++) {
+            StampedLock lock = locks[i];
+            boolean copied = false;
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS && !copied; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp != 0) {
+                    copy.clear();
+                    copy.addAll(histograms[i]);
+                    copied = lock.validate(stamp);
+                }
+                if (!copied) {
+                    Thread.onSpinWait();
+                }
+            }
+            if (!copied) {
+                long stamp = lock.readLock();
+                try {
+                    copy.clear();
+                    copy.addAll(histograms[i]);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            merged.addAll(copy);
+        }
+        return merged;
+    }
+
+    private static int stripeOf(int studentId) {
+        int h = studentId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,483 @@
+package com.grades;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary export format for shipping a roster between sites.
+ * Students are written in ascending ID order and grouped into blocks of
+ * about BLOCK_SIZE bytes. Each block is checksummed and optionally
+ * deflated, and is encoded and decoded on its own, so files of any size
+ * are written and read in constant memory.
+ *
+ * Layout (big-endian, varints are unsigned LEB128):
+ * <pre>
+ * header   magic, version, flags (bit 0: blocks are deflated) (int, 2 bytes),
+ *          studentCount (long)
+ * block    studentCount, rawLength, storedLength, crc32 of the raw bytes (4 ints),
+ *          storedLength bytes
+ * end      0 (int)
+ * student  ID minus the previous student's ID (varint; the first is
+ *          counted from Integer.MIN_VALUE), name length and UTF-8 bytes
+ *          (varint, bytes), gradeCount * 4 + encoding (varint), grades
+ * </pre>
+ * Grades are encoded per student in the smallest form that holds all of
+ * them exactly: whole points as one byte each, hundredths of a point as
+ * varints (one or two bytes), or else 8-byte doubles.
+ */
+public final class GradeArchive {
+    /** Target size of a block before compression, in bytes */
+    public static final int BLOCK_SIZE = 256 << 10;
+
+    private static final int MAGIC = 0x47524441;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int MAX_BLOCK = 1 << 30;
+
+    private static final int WHOLE = 0;
+    private static final int HUNDREDTHS = 1;
+    private static final int DOUBLES = 2;
+
+    private GradeArchive() {
+    }
+
+    /**
+     * Write every student and grade of a manager to a file
+     * @param manager The manager to export
+     * @param file The file to write, replaced if it exists
+     * @param compress true to deflate each block
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GradeManager manager, Path file, boolean compress) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(manager, out, compress);
+        }
+    }
+
+    /**
+     * Write every student and grade of a manager to a stream. The stream
+     * is flushed but not closed.
+     * @param manager The manager to export
+     * @param target Where the archive is written
+     * @param compress true to deflate each block
+     * @throws IOException if the archive cannot be written
+     */
+    public static void write(GradeManager manager, OutputStream target, boolean compress) throws IOException {
+        int[] ids = new int[manager.getStudentCount()];
+        int[] n = {0};
+        manager.forEachStudent(s -> ids[n[0]++] = s.getId());
+        Arrays.sort(ids);
+
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(compress ? FLAG_DEFLATE : 0);
+        out.writeLong(ids.length);
+
+        BlockWriter block = new BlockWriter(out, compress);
+        try {
+            long previous = Integer.MIN_VALUE;
+            for (int id : ids) {
+                Student s = manager.findStudentById(id);
+                block.putVarLong(id - previous);
+                previous = id;
+                byte[] name = s.getName().getBytes(StandardCharsets.UTF_8);
+                block.putVarLong(name.length);
+                block.put(name);
+                putGrades(block, s);
+                block.students++;
+                if (block.length >= BLOCK_SIZE) {
+                    block.flush();
+                }
+            }
+            block.flush();
+        } finally {
+            block.end();
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /**
+     * Encode a student's grades in the smallest exact form
+     */
+    private static void putGrades(BlockWriter block, Student s) {
+        int count = s.getGradeCount();
+        int encoding = WHOLE;
+        for (int i = 0; i < count && encoding != DOUBLES; i++) {
+            double g = s.getGrade(i);
+            long scaled = Math.round(g * 100);
+            if (scaled / 100.0 != g) {
+                encoding = DOUBLES;
+            } else if (scaled % 100 != 0) {
+                encoding = HUNDREDTHS;
+            }
+        }
+        block.putVarLong(((long) count << 2) | encoding);
+        block.ensure(count * 8L);
+        for (int i = 0; i < count; i++) {
+            double g = s.getGrade(i);
+            if (encoding == WHOLE) {
+                block.buf[block.length++] = (byte) g;
+            } else if (encoding == HUNDREDTHS) {
+                block.putVarLong(Math.round(g * 100));
+            } else {
+                block.putLong(Double.doubleToLongBits(g));
+            }
+        }
+    }
+
+    /**
+     * Read an archive file into a manager
+     * @param file The archive
+     * @param manager The manager the students are added to
+     * @return Number of students read
+     * @throws IOException if the file cannot be read, is damaged, or holds
+     *         a student ID the manager already has
+     */
+    public static long read(Path file, GradeManager manager) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, manager);
+        }
+    }
+
+    /**
+     * Read an archive from a stream into a manager, one block at a time.
+     * The blocks before a damaged one have already been added when the
+     * damage is found.
+     * @param source The archive stream; it is not closed
+     * @param manager The manager the students are added to
+     * @return Number of students read
+     * @throws IOException if the stream cannot be read, is damaged, or
+     *         holds a student ID the manager already has
+     */
+    public static long read(InputStream source, GradeManager manager) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 1 << 16));
+        long expected;
+        boolean deflated;
+        try {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                throw new IOException("Not a grade archive");
+            }
+            deflated = (in.readUnsignedByte() & FLAG_DEFLATE) != 0;
+            expected = in.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Not a grade archive", e);
+        }
+
+        BlockReader block = new BlockReader(deflated);
+        long read = 0;
+        long previous = Integer.MIN_VALUE;
+        double[] grades = new double[16];
+        try {
+            while (true) {
+                int students = in.readInt();
+                if (students == 0) {
+                    break;
+                }
+                block.load(in, students);
+                for (int i = 0; i < students; i++) {
+                    long id = previous + block.getVarLong();
+                    if (id > Integer.MAX_VALUE || (read > 0 && id == previous)) {
+                        throw new IOException("Damaged archive: bad student ID");
+                    }
+                    previous = id;
+                    String name = block.getString((int) block.getVarLong());
+                    long header = block.getVarLong();
+                    long count = header >>> 2;
+                    if (count > block.remaining()) {
+                        throw new IOException("Damaged archive: bad grade count");
+                    }
+                    if (count > grades.length) {
+                        grades = new double[(int) Math.max(count, grades.length * 2L)];
+                    }
+                    block.getGrades(grades, (int) count, (int) (header & 3));
+                    Student student = new Student(name, (int) id);
+                    student.appendGrades(grades, 0, (int) count);
+                    try {
+                        manager.addStudent(student);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Archive student does not apply: " + e.getMessage(), e);
+                    }
+                    read++;
+                }
+                if (block.remaining() != 0) {
+                    throw new IOException("Damaged archive: trailing bytes in block");
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated archive after " + read + " students", e);
+        } finally {
+            block.end();
+        }
+        if (read != expected) {
+            throw new IOException("Archive holds " + read + " students but its header says " + expected);
+        }
+        return read;
+    }
+
+    /**
+     * Check whether a file starts like an archive
+     * @param file The file to check
+     * @return true if the file has the archive magic number
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isArchive(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Growable buffer for the block being encoded
+     */
+    private static final class BlockWriter {
+        private final DataOutputStream out;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        byte[] buf = new byte[BLOCK_SIZE + (BLOCK_SIZE >> 2)];
+        int length;
+        int students;
+        private byte[] compressed = new byte[0];
+
+        BlockWriter(DataOutputStream out, boolean compress) {
+            this.out = out;
+            this.deflater = compress ? new Deflater(Deflater.DEFAULT_COMPRESSION) : null;
+        }
+
+        void ensure(long extra) {
+            long needed = length + extra;
+            if (needed > buf.length) {
+                if (needed > MAX_BLOCK) {
+                    throw new IllegalArgumentException("A student is too large for an archive block");
+                }
+                buf = Arrays.copyOf(buf, (int) Math.min(MAX_BLOCK, Math.max(needed, buf.length * 2L)));
+            }
+        }
+
+        void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void putVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[length++] = (byte) v;
+        }
+
+        void putLong(long v) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[length++] = (byte) (v >>> shift);
+            }
+        }
+
+        /**
+         * Write the buffered students as one block
+         */
+        void flush() throws IOException {
+            if (students == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(buf, 0, length);
+            byte[] stored = buf;
+            int storedLength = length;
+            if (deflater != null) {
+                deflater.reset();
+                deflater.setInput(buf, 0, length);
+                deflater.finish();
+                if (compressed.length < length + 64) {
+                    compressed = new byte[length + (length >> 3) + 64];
+                }
+                storedLength = 0;
+                while (!deflater.finished()) {
+                    if (storedLength == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    storedLength += deflater.deflate(compressed, storedLength, compressed.length - storedLength);
+                }
+                stored = compressed;
+            }
+            out.writeInt(students);
+            out.writeInt(length);
+            out.writeInt(storedLength);
+            out.writeInt((int) crc.getValue());
+            out.write(stored, 0, storedLength);
+            length = 0;
+            students = 0;
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * The decoded bytes of the block being read
+     */
+    private static final class BlockReader {
+        private final Inflater inflater;
+        private final CRC32 crc = new CRC32();
+        private byte[] buf = new byte[BLOCK_SIZE + (BLOCK_SIZE >> 2)];
+        private byte[] stored = new byte[0];
+        private int pos;
+        private int limit;
+
+        BlockReader(boolean deflated) {
+            this.inflater = deflated ? new Inflater() : null;
+        }
+
+        /**
+         * Read, inflate and verify the next block
+         */
+        void load(DataInputStream in, int students) throws IOException {
+            int rawLength = in.readInt();
+            int storedLength = in.readInt();
+            int checksum = in.readInt();
+            if (students < 0 || rawLength < 0 || rawLength > MAX_BLOCK || storedLength < 0
+                    || storedLength > MAX_BLOCK || (inflater == null && storedLength != rawLength)) {
+                throw new IOException("Damaged archive: bad block header");
+            }
+            if (buf.length < rawLength) {
+                buf = new byte[rawLength];
+            }
+            if (inflater == null) {
+                in.readFully(buf, 0, rawLength);
+            } else {
+                if (stored.length < storedLength) {
+                    stored = new byte[storedLength];
+                }
+                in.readFully(stored, 0, storedLength);
+                inflater.reset();
+                inflater.setInput(stored, 0, storedLength);
+                try {
+                    int n = 0;
+                    while (n < rawLength && !inflater.finished()) {
+                        int got = inflater.inflate(buf, n, rawLength - n);
+                        if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        n += got;
+                    }
+                    if (n != rawLength || !inflater.finished()) {
+                        throw new IOException("Damaged archive: block does not inflate to its length");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Damaged archive: " + e.getMessage(), e);
+                }
+            }
+            crc.reset();
+            crc.update(buf, 0, rawLength);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Damaged archive: block checksum mismatch");
+            }
+            pos = 0;
+            limit = rawLength;
+        }
+
+        int remaining() {
+            return limit - pos;
+        }
+
+        long getVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos == limit) {
+                    throw new IOException("Damaged archive: block ends inside a value");
+                }
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return v;
+                }
+            }
+            throw new IOException("Damaged archive: varint too long");
+        }
+
+        String getString(int length) throws IOException {
+            if (length < 0 || length > limit - pos) {
+                throw new IOException("Damaged archive: bad name length");
+            }
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        /**
+         * Decode and validate count grades
+         */
+        void getGrades(double[] grades, int count, int encoding) throws IOException {
+            switch (encoding) {
+                case WHOLE:
+                    if (count > limit - pos) {
+                        throw new IOException("Damaged archive: block ends inside grades");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        int g = buf[pos++];
+                        if (g < 0 || g > 100) {
+                            throw new IOException("Damaged archive: grade out of range");
+                        }
+                        grades[i] = g;
+                    }
+                    break;
+                case HUNDREDTHS:
+                    for (int i = 0; i < count; i++) {
+                        long h = getVarLong();
+                        // A ten-byte varint can decode to a negative value
+                        if (h < 0 || h > 10000) {
+                            throw new IOException("Damaged archive: grade out of range");
+                        }
+                        grades[i] = h / 100.0;
+                    }
+                    break;
+                case DOUBLES:
+                    if ((long) count * 8 > limit - pos) {
+                        throw new IOException("Damaged archive: block ends inside grades");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        long bits = 0;
+                        for (int b = 0; b < 8; b++) {
+                            bits = (bits << 8) | (buf[pos++] & 0xFF);
+                        }
+                        double g = Double.longBitsToDouble(bits);
+                        if (!(g >= 0 && g <= 100)) {
+                            throw new IOException("Damaged archive: grade out of range");
+                        }
+                        grades[i] = g;
+                    }
+                    break;
+                default:
+                    throw new IOException("Damaged archive: unknown grade encoding " + encoding);
+            }
+        }
+
+        void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
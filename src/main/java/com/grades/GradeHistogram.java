@@ -0,0 +1,210 @@
+package com.grades;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of grades at 0.1 resolution.
+ * Grades are limited to 0-100, so 1001 buckets hold any distribution and
+ * median, percentile, standard deviation and letter-grade queries cost
+ * O(buckets) no matter how many grades were recorded.
+ */
+public final class GradeHistogram {
+    /** Number of buckets, one per 0.1 step from 0.0 to 100.0 */
+    public static final int BUCKETS = 1001;
+
+    private static final char[] LETTERS = {'A', 'B', 'C', 'D', 'F'};
+
+    private final int[] counts = new int[BUCKETS];
+    private long total;
+
+    /**
+     * Constructor for an empty histogram
+     */
+    GradeHistogram() {
+    }
+
+    /**
+     * Record a grade
+     * @param grade A grade between 0 and 100
+     */
+    void add(double grade) {
+        counts[bucketOf(grade)]++;
+        total++;
+    }
+
+    /**
+     * Forget a previously recorded grade
+     * @param grade A grade between 0 and 100
+     */
+    void remove(double grade) {
+        counts[bucketOf(grade)]--;
+        total--;
+    }
+
+    /**
+     * Record a number of grades in one bucket
+     * @param bucket The bucket
+     * @param count Number of grades
+     */
+    void addBucket(int bucket, int count) {
+        counts[bucket] += count;
+        total += count;
+    }
+
+    /**
+     * Record every grade of another histogram
+     * @param other The histogram to merge in
+     */
+    void addAll(GradeHistogram other) {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] += other.counts[b];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Copy the histogram
+     * @return A new histogram holding the same grades
+     */
+    GradeHistogram copy() {
+        GradeHistogram copy = new GradeHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKETS);
+        copy.total = total;
+        return copy;
+    }
+
+    /**
+     * Forget every recorded grade
+     */
+    void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    /**
+     * Get the number of recorded grades
+     * @return Number of grades
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Get the number of grades that fall in a bucket
+     * @param bucket Bucket index, where bucket b holds grades in [b/10, (b+1)/10)
+     * @return Number of grades in the bucket
+     */
+    public int getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * Get a percentile using the nearest-rank method
+     * @param percentile Percentile between 0 and 100
+     * @return The grade at that percentile (to 0.1), or 0 if no grades exist
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        return valueAt(rank);
+    }
+
+    /**
+     * Get the median grade
+     * @return The median (to 0.1), or 0 if no grades exist
+     */
+    public double getMedian() {
+        if (total == 0) {
+            return 0.0;
+        }
+        long upper = total / 2 + 1;
+        if ((total & 1) == 1) {
+            return valueAt(upper);
+        }
+        return (valueAt(upper - 1) + valueAt(upper)) / 2;
+    }
+
+    /**
+     * Get the population standard deviation of the grades
+     * @return The standard deviation (at 0.1 resolution), or 0 if no grades exist
+     */
+    public double getStandardDeviation() {
+        if (total == 0) {
+            return 0.0;
+        }
+        // Sums of bucket indexes are exact integers, so no drift here
+        long sum = 0;
+        double sumSquares = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            int c = counts[b];
+            if (c != 0) {
+                sum += (long) c * b;
+                sumSquares += (double) c * b * b;
+            }
+        }
+        double mean = (double) sum / total;
+        double variance = sumSquares / total - mean * mean;
+        return Math.sqrt(Math.max(0, variance)) / 10;
+    }
+
+    /**
+     * Get how many grades earn each letter
+     * @return Counts for A, B, C, D and F, in that order
+     */
+    public long[] getLetterCounts() {
+        long[] letters = new long[LETTERS.length];
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] != 0) {
+                letters[letterIndex(Student.letterGrade(b / 10.0))] += counts[b];
+            }
+        }
+        return letters;
+    }
+
+    /**
+     * Get how many grades earn a letter
+     * @param letter One of A, B, C, D or F
+     * @return Number of grades with that letter
+     */
+    public long getLetterCount(char letter) {
+        return getLetterCounts()[letterIndex(letter)];
+    }
+
+    /**
+     * Get the grade of the rank-th smallest recorded grade (1-based)
+     */
+    private double valueAt(long rank) {
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return b / 10.0;
+            }
+        }
+        return 100.0;
+    }
+
+    /**
+     * Map a grade to its bucket, rounding down to 0.1
+     */
+    static int bucketOf(double grade) {
+        // The epsilon stops values such as 57.3 landing in 57.2
+        int bucket = (int) Math.floor(grade * 10 + 1e-9);
+        return Math.max(0, Math.min(BUCKETS - 1, bucket));
+    }
+
+    private static int letterIndex(char letter) {
+        for (int i = 0; i < LETTERS.length; i++) {
+            if (LETTERS[i] == letter) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown letter grade: " + letter);
+    }
+}
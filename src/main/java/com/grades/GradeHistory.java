@@ -0,0 +1,500 @@
+package com.grades;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only, time-ordered log of every grade with the time it was given,
+ * for windowed averages, term-by-term trends and the class as of a date.
+ *
+ * Registered as a listener of a GradeManager, it stamps each grade with
+ * the clock's time; grades with their own time, such as historical
+ * imports, are added with addGrade. Each student's log is two primitive
+ * columns: timestamps and running sums of the grades. A window average is
+ * two binary searches and a subtraction, so a class-wide window costs one
+ * O(log n) lookup per student rather than a pass over every grade.
+ *
+ * Terms are named time ranges. For each term the history keeps a rollup,
+ * updated as grades arrive: the grade count, and the number and
+ * compensated sum of the per-student term averages. Class figures for a
+ * term are O(1).
+ *
+ * A student added with grades already recorded, as after a journal replay
+ * or when opening a MappedSnapshot, has no time for those grades. They
+ * are logged at Long.MIN_VALUE: they count towards averages "as of" any
+ * time and the overall grade count, but fall in no term and in no window
+ * that starts later. Grades received afterwards are stamped as usual.
+ *
+ * Times are epoch milliseconds and windows are half-open: from is
+ * included, to is not. Like GradeManager, this class is not thread-safe.
+ */
+public final class GradeHistory implements GradeListener {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final Clock clock;
+    private final StudentIndex index = new StudentIndex();
+    private StudentLog[] logs = new StudentLog[16];
+    private int logCount;
+    // Terms ordered by start time, never overlapping
+    private final List<Term> terms = new ArrayList<>();
+    private long gradeCount;
+
+    /**
+     * Constructor for a history stamping grades with the system clock
+     */
+    public GradeHistory() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Constructor for a history stamping grades with a given clock
+     * @param clock Gives the time of grades received as a listener
+     */
+    public GradeHistory(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        StudentLog log = logFor(student.getId());
+        // When these grades were given is unknown
+        for (int i = 0; i < student.getGradeCount(); i++) {
+            append(log, Long.MIN_VALUE, student.getGrade(i));
+        }
+    }
+
+    @Override
+    public void gradeAdded(Student student, double grade) {
+        append(logFor(student.getId()), clock.millis(), grade);
+    }
+
+    @Override
+    public void gradesAdded(Student student, double[] grades, int from, int to) {
+        long now = clock.millis();
+        StudentLog log = logFor(student.getId());
+        for (int i = from; i < to; i++) {
+            append(log, now, grades[i]);
+        }
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        removeStudent(student.getId());
+    }
+
+    /**
+     * Record a grade given at a specific time
+     * @param studentId The ID of the student
+     * @param timestamp When the grade was given, in epoch milliseconds
+     * @param grade The grade (0-100)
+     * @throws IllegalArgumentException if the grade is invalid or earlier
+     *         than the student's last recorded grade
+     */
+    public void addGrade(int studentId, long timestamp, double grade) {
+        Student.checkGrade(grade);
+        StudentLog log = logFor(studentId);
+        if (log.size > 0 && timestamp < log.times[log.size - 1]) {
+            throw new IllegalArgumentException("Grades of student " + studentId + " must be added in time order");
+        }
+        append(log, timestamp, grade);
+    }
+
+    /**
+     * Forget a student's history
+     * @param studentId The ID of the student
+     * @return true if the student had a history
+     */
+    public boolean removeStudent(int studentId) {
+        int position = index.remove(studentId);
+        if (position < 0) {
+            return false;
+        }
+        StudentLog log = logs[position];
+        for (Term term : terms) {
+            int from = log.lowerBound(term.start);
+            int to = log.lowerBound(term.end);
+            if (to > from) {
+                term.gradeCount -= to - from;
+                term.removeAverage(log.average(from, to));
+            }
+        }
+        gradeCount -= log.size;
+        StudentLog last = logs[--logCount];
+        logs[logCount] = null;
+        if (last != log) {
+            logs[position] = last;
+            index.put(last.id, position);
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of recorded grades
+     * @return Number of grades across all students
+     */
+    public long getGradeCount() {
+        return gradeCount;
+    }
+
+    /**
+     * Get the number of grades a student received in a window
+     * @param studentId The ID of the student
+     * @param from Start of the window, included
+     * @param to End of the window, excluded
+     * @return Number of grades, or 0 if the student has no history
+     */
+    public int getGradeCount(int studentId, long from, long to) {
+        StudentLog log = find(studentId);
+        if (log == null || to <= from) {
+            return 0;
+        }
+        return log.lowerBound(to) - log.lowerBound(from);
+    }
+
+    /**
+     * Get a student's average over a window, e.g. the last 30 days
+     * @param studentId The ID of the student
+     * @param from Start of the window, included
+     * @param to End of the window, excluded
+     * @return Average of the grades in the window, or 0 if there are none
+     */
+    public double getAverage(int studentId, long from, long to) {
+        StudentLog log = find(studentId);
+        if (log == null || to <= from) {
+            return 0.0;
+        }
+        return log.average(log.lowerBound(from), log.lowerBound(to));
+    }
+
+    /**
+     * Get a student's average over every grade given before a time
+     * @param studentId The ID of the student
+     * @param time The time, excluded
+     * @return The average as of that time, or 0 if there were no grades
+     */
+    public double getAverageAsOf(int studentId, long time) {
+        return getAverage(studentId, Long.MIN_VALUE, time);
+    }
+
+    /**
+     * Get the class average over a window: the average of the window
+     * averages of the students with a grade in it
+     * @param from Start of the window, included
+     * @param to End of the window, excluded
+     * @return The class average, or 0 if no grade falls in the window
+     */
+    public double getClassAverage(long from, long to) {
+        if (to <= from) {
+            return 0.0;
+        }
+        int students = 0;
+        double sum = 0;
+        for (int i = 0; i < logCount; i++) {
+            StudentLog log = logs[i];
+            int a = log.lowerBound(from);
+            int b = log.lowerBound(to);
+            if (b > a) {
+                sum += log.average(a, b);
+                students++;
+            }
+        }
+        return students == 0 ? 0.0 : sum / students;
+    }
+
+    /**
+     * Get the class average as of a date, counting each student's grades
+     * given before it
+     * @param time The time, excluded
+     * @return The class average as of that time, or 0 if there were no grades
+     */
+    public double getClassAverageAsOf(long time) {
+        return getClassAverage(Long.MIN_VALUE, time);
+    }
+
+    /**
+     * Define a term. Its rollup is built from the grades already recorded
+     * and kept up to date from then on.
+     * @param name Name of the term
+     * @param start Start of the term, included
+     * @param end End of the term, excluded
+     * @throws IllegalArgumentException if the name is empty or taken, the
+     *         term is empty, or it overlaps another term
+     */
+    public void defineTerm(String name, long start, long end) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Term name cannot be empty");
+        }
+        if (end <= start) {
+            throw new IllegalArgumentException("Term must end after it starts");
+        }
+        int position = 0;
+        for (Term term : terms) {
+            if (term.name.equals(name)) {
+                throw new IllegalArgumentException("Term " + name + " already exists");
+            }
+            if (start < term.end && term.start < end) {
+                throw new IllegalArgumentException("Term " + name + " overlaps term " + term.name);
+            }
+            if (term.start < start) {
+                position++;
+            }
+        }
+        Term term = new Term(name, start, end);
+        for (int i = 0; i < logCount; i++) {
+            StudentLog log = logs[i];
+            int from = log.lowerBound(start);
+            int to = log.lowerBound(end);
+            if (to > from) {
+                term.gradeCount += to - from;
+                term.addAverage(log.average(from, to));
+            }
+        }
+        terms.add(position, term);
+    }
+
+    /**
+     * Get the names of the terms in time order
+     * @return Term names
+     */
+    public List<String> getTerms() {
+        List<String> names = new ArrayList<>(terms.size());
+        for (Term term : terms) {
+            names.add(term.name);
+        }
+        return names;
+    }
+
+    /**
+     * Get a student's average in a term
+     * @param studentId The ID of the student
+     * @param term Name of the term
+     * @return The term average, or 0 if the student has no grades in it
+     * @throws IllegalArgumentException if the term is not defined
+     */
+    public double getTermAverage(int studentId, String term) {
+        Term t = requireTerm(term);
+        return getAverage(studentId, t.start, t.end);
+    }
+
+    /**
+     * Get a student's term-by-term trend
+     * @param studentId The ID of the student
+     * @return The student's average in each term, in the order of
+     *         getTerms(), with 0 for terms without grades
+     */
+    public double[] getTermTrend(int studentId) {
+        double[] trend = new double[terms.size()];
+        StudentLog log = find(studentId);
+        if (log != null) {
+            for (int i = 0; i < trend.length; i++) {
+                Term t = terms.get(i);
+                trend[i] = log.average(log.lowerBound(t.start), log.lowerBound(t.end));
+            }
+        }
+        return trend;
+    }
+
+    /**
+     * Get the class average in a term from its rollup: the average of the
+     * term averages of the students graded in it
+     * @param term Name of the term
+     * @return The class term average, or 0 if the term has no grades
+     * @throws IllegalArgumentException if the term is not defined
+     */
+    public double getClassTermAverage(String term) {
+        Term t = requireTerm(term);
+        return t.studentCount == 0 ? 0.0 : t.averageSum() / t.studentCount;
+    }
+
+    /**
+     * Get the number of grades given in a term
+     * @param term Name of the term
+     * @return Number of grades
+     * @throws IllegalArgumentException if the term is not defined
+     */
+    public long getClassTermGradeCount(String term) {
+        return requireTerm(term).gradeCount;
+    }
+
+    /**
+     * Get the number of students graded in a term
+     * @param term Name of the term
+     * @return Number of students with a grade in the term
+     * @throws IllegalArgumentException if the term is not defined
+     */
+    public int getClassTermStudentCount(String term) {
+        return requireTerm(term).studentCount;
+    }
+
+    private Term requireTerm(String name) {
+        for (Term term : terms) {
+            if (term.name.equals(name)) {
+                return term;
+            }
+        }
+        throw new IllegalArgumentException("Term " + name + " is not defined");
+    }
+
+    private StudentLog find(int studentId) {
+        int position = index.get(studentId);
+        return position < 0 ? null : logs[position];
+    }
+
+    private StudentLog logFor(int studentId) {
+        StudentLog log = find(studentId);
+        if (log == null) {
+            log = new StudentLog(studentId);
+            if (logCount == logs.length) {
+                logs = Arrays.copyOf(logs, logCount + (logCount >> 1));
+            }
+            index.put(studentId, logCount);
+            logs[logCount++] = log;
+        }
+        return log;
+    }
+
+    /**
+     * Append a grade at or after the log's last time, updating the rollup
+     * of the term it falls in
+     */
+    private void append(StudentLog log, long timestamp, double grade) {
+        // Grades from the clock never go back in time within a log
+        timestamp = log.size == 0 ? timestamp : Math.max(timestamp, log.times[log.size - 1]);
+        Term term = termAt(timestamp);
+        if (term != null) {
+            // Every earlier grade is before timestamp, so the student's
+            // term grades so far run from the term start to the end of the
+            // log. Averages come from the running sums, so the one taken
+            // out is exactly the one put in before.
+            int from = log.lowerBound(term.start);
+            if (log.size > from) {
+                term.removeAverage(log.average(from, log.size));
+            }
+            log.append(timestamp, grade);
+            term.addAverage(log.average(from, log.size));
+            term.gradeCount++;
+        } else {
+            log.append(timestamp, grade);
+        }
+        gradeCount++;
+    }
+
+    /**
+     * Find the term containing a time by binary search
+     */
+    private Term termAt(long time) {
+        int lo = 0;
+        int hi = terms.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Term term = terms.get(mid);
+            if (time < term.start) {
+                hi = mid - 1;
+            } else if (time >= term.end) {
+                lo = mid + 1;
+            } else {
+                return term;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One student's grades: timestamps in order and running sums, where
+     * sums[k] is the total of the first k grades
+     */
+    private static final class StudentLog {
+        final int id;
+        long[] times = new long[INITIAL_CAPACITY];
+        double[] sums = new double[INITIAL_CAPACITY + 1];
+        int size;
+
+        StudentLog(int id) {
+            this.id = id;
+        }
+
+        void append(long timestamp, double grade) {
+            if (size == times.length) {
+                int capacity = size + (size >> 1);
+                times = Arrays.copyOf(times, capacity);
+                sums = Arrays.copyOf(sums, capacity + 1);
+            }
+            times[size] = timestamp;
+            sums[size + 1] = sums[size] + grade;
+            size++;
+        }
+
+        /**
+         * Index of the first grade given at or after a time
+         */
+        int lowerBound(long time) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        double average(int from, int to) {
+            return to > from ? (sums[to] - sums[from]) / (to - from) : 0.0;
+        }
+    }
+
+    /**
+     * A named time range and its class-wide rollup
+     */
+    private static final class Term {
+        final String name;
+        final long start;
+        final long end;
+        long gradeCount;
+        int studentCount;
+        // Sum over the students graded in the term of their term average,
+        // with the compensation of Neumaier's summation, which also holds
+        // up when values are taken out again
+        private double sum;
+        private double compensation;
+
+        Term(String name, long start, long end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        void addAverage(double average) {
+            studentCount++;
+            add(average);
+        }
+
+        void removeAverage(double average) {
+            if (--studentCount == 0) {
+                sum = 0.0;
+                compensation = 0.0;
+            } else {
+                add(-average);
+            }
+        }
+
+        double averageSum() {
+            return sum + compensation;
+        }
+
+        private void add(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.grades;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage for a GradeManager.
+ * Every change is appended to a write-ahead log. A background thread
+ * writes whatever has accumulated and fsyncs it in one go (group commit),
+ * so many changes share one fsync under load. Every checkpoint interval
+ * the whole roster is written to a compact snapshot and older logs are
+ * deleted, so recovery maps the latest snapshot (see MappedSnapshot)
+ * and replays only the log tail.
+ *
+ * The journal listens to the manager, so it must only be checkpointed
+ * from the thread that changes the manager.
+ *
+ * Changes waiting for the flusher are capped at MAX_PENDING bytes; a
+ * change that would go past the cap waits until the flusher has taken the
+ * batch, so a slow disk holds writers back instead of filling the heap.
+ *
+ * Only the newest log can end in a torn record, left by a crash while it
+ * was written; that tail is cut off when the journal is opened. A damaged
+ * record anywhere else means stored changes are lost, and open fails.
+ *
+ * Changes reach the journal after the manager has applied them. When the
+ * log or an automatic snapshot cannot be written, the journal stops the
+ * manager from accepting any further change (it throws
+ * IllegalStateException) and sync and close report the failure, so the
+ * roster in memory never silently runs ahead of what is stored.
+ */
+public class GradeJournal implements GradeListener, Closeable {
+    /** Default number of logged changes between automatic snapshots */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1_000_000;
+    /** Most bytes of logged changes waiting to be written */
+    public static final int MAX_PENDING = 4 << 20;
+
+    private static final byte ADD_STUDENT = 1;
+    private static final byte ADD_GRADE = 2;
+    private static final byte REMOVE_STUDENT = 3;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 64 << 20;
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final GradeManager manager;
+    private final long checkpointInterval;
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+
+    // All fields below are guarded by lock
+    private FileChannel log;
+    private long generation;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16);
+    private long appendedBytes;
+    private long durableBytes;
+    private boolean flusherIdle;
+    private boolean closed;
+    private IOException failure;
+    private long changesSinceCheckpoint;
+    private int recordStart;
+
+    private GradeJournal(Path directory, GradeManager manager, long checkpointInterval, long generation)
+            throws IOException {
+        this.directory = directory;
+        this.manager = manager;
+        this.checkpointInterval = checkpointInterval;
+        this.generation = generation;
+        this.log = openLog(generation);
+        this.flusher = new Thread(this::flushLoop, "grade-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Open a journal, restoring the stored students and grades into an
+     * empty manager and logging every later change to it
+     * @param directory Directory holding the logs and snapshots
+     * @param manager An empty manager to restore into
+     * @return The open journal
+     * @throws IOException if the directory cannot be read, a snapshot is
+     *         damaged, or a log other than the newest is damaged
+     */
+    public static GradeJournal open(Path directory, GradeManager manager) throws IOException {
+        return open(directory, manager, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Open a journal with a custom snapshot interval
+     * @param directory Directory holding the logs and snapshots
+     * @param manager An empty manager to restore into
+     * @param checkpointInterval Number of logged changes between automatic snapshots
+     * @return The open journal
+     * @throws IOException if the directory cannot be read, a snapshot is
+     *         damaged, or a log other than the newest is damaged
+     */
+    public static GradeJournal open(Path directory, GradeManager manager, long checkpointInterval)
+            throws IOException {
+        if (manager.getStudentCount() != 0) {
+            throw new IllegalArgumentException("Journal must be opened on an empty manager");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        Files.createDirectories(directory);
+        List<Long> snapshots = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<Long> logs = generations(directory, LOG_PREFIX, LOG_SUFFIX);
+
+        long covered = -1;
+        if (!snapshots.isEmpty()) {
+            covered = snapshots.get(snapshots.size() - 1);
+            // Students are built from the mapped snapshot on first use
+            MappedSnapshot.map(snapshotPath(directory, covered)).attachTo(manager);
+        }
+        long last = covered;
+        for (int i = 0; i < logs.size(); i++) {
+            long gen = logs.get(i);
+            Path path = logPath(directory, gen);
+            if (gen > covered) {
+                replayLog(path, manager, i == logs.size() - 1);
+            }
+            last = Math.max(last, gen);
+            if (Files.size(path) == 0) {
+                Files.delete(path);
+            }
+        }
+
+        GradeJournal journal = new GradeJournal(directory, manager, checkpointInterval, last + 1);
+        manager.addListener(journal);
+        return journal;
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        byte[] name = student.getName().getBytes(StandardCharsets.UTF_8);
+        int count = student.getGradeCount();
+        synchronized (lock) {
+            ByteBuffer buf = beginRecord(1 + 4 + 4 + name.length + 4 + count * 8);
+            buf.put(ADD_STUDENT).putInt(student.getId()).putInt(name.length).put(name).putInt(count);
+            for (int i = 0; i < count; i++) {
+                buf.putDouble(student.getGrade(i));
+            }
+            endRecord();
+        }
+        checkpointIfDue();
+    }
+
+    @Override
+    public void gradeAdded(Student student, double grade) {
+        synchronized (lock) {
+            beginRecord(1 + 4 + 8).put(ADD_GRADE).putInt(student.getId()).putDouble(grade);
+            endRecord();
+        }
+        checkpointIfDue();
+    }
+
+    @Override
+    public void gradesAdded(Student student, double[] grades, int from, int to) {
+        synchronized (lock) {
+            for (int i = from; i < to; i++) {
+                beginRecord(1 + 4 + 8).put(ADD_GRADE).putInt(student.getId()).putDouble(grades[i]);
+                endRecord();
+            }
+        }
+        checkpointIfDue();
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        synchronized (lock) {
+            beginRecord(1 + 4).put(REMOVE_STUDENT).putInt(student.getId());
+            endRecord();
+        }
+        checkpointIfDue();
+    }
+
+    /**
+     * Wait until every change logged so far has been written and fsynced
+     * @throws IOException if the log could not be written
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedBytes;
+            while (durableBytes < target && failure == null) {
+                lock.notifyAll();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of the manager and delete the logs it replaces.
+     * Must be called from the thread that changes the manager.
+     * @throws IOException if the snapshot could not be written
+     */
+    public void checkpoint() throws IOException {
+        long covered;
+        synchronized (lock) {
+            sync();
+            log.close();
+            covered = generation;
+            generation++;
+            log = openLog(generation);
+            changesSinceCheckpoint = 0;
+        }
+        writeSnapshot(covered);
+        for (long gen : generations(directory, LOG_PREFIX, LOG_SUFFIX)) {
+            if (gen <= covered) {
+                Files.deleteIfExists(logPath(directory, gen));
+            }
+        }
+        for (long gen : generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (gen < covered) {
+                Files.deleteIfExists(snapshotPath(directory, gen));
+            }
+        }
+    }
+
+    /**
+     * Flush outstanding changes, stop logging and close the log file
+     * @throws IOException if the final flush failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            manager.removeListener(this);
+            try {
+                sync();
+            } finally {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            log.close();
+        }
+    }
+
+    /**
+     * Reserve room for a record of the given payload size and write its
+     * header. Caller must hold the lock until endRecord.
+     */
+    private ByteBuffer beginRecord(int payloadSize) {
+        if (failure != null) {
+            // Only a change racing the failure gets here; the manager refuses later ones
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        int needed = RECORD_HEADER + payloadSize;
+        if (pending.position() > 0 && pending.position() + needed > MAX_PENDING) {
+            awaitFlusher(needed);
+        }
+        if (pending.remaining() < needed) {
+            int capacity = pending.capacity();
+            while (capacity - pending.position() < needed) {
+                capacity <<= 1;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        recordStart = pending.position();
+        pending.putInt(payloadSize).putInt(0);
+        return pending;
+    }
+
+    /**
+     * Wait until the flusher has taken the pending changes, or enough of
+     * them for a record of the given size to fit under MAX_PENDING. Caller
+     * must hold the lock; every earlier record is complete.
+     */
+    private void awaitFlusher(int needed) {
+        boolean interrupted = false;
+        while (pending.position() > 0 && pending.position() + needed > MAX_PENDING
+                && failure == null && !closed) {
+            lock.notifyAll();
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                // The change is already applied, so it must still be logged
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    /**
+     * Fill in the checksum of the record just written and wake the
+     * flusher. Caller must hold the lock.
+     */
+    private void endRecord() {
+        int end = pending.position();
+        int payloadStart = recordStart + RECORD_HEADER;
+        crc.reset();
+        crc.update(pending.array(), payloadStart, end - payloadStart);
+        pending.putInt(recordStart + 4, (int) crc.getValue());
+        appendedBytes += end - recordStart;
+        changesSinceCheckpoint++;
+        if (flusherIdle) {
+            lock.notifyAll();
+        }
+    }
+
+    private void checkpointIfDue() {
+        boolean due;
+        synchronized (lock) {
+            due = changesSinceCheckpoint >= checkpointInterval;
+        }
+        if (due) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                // The change is already logged and the old logs are kept, so
+                // nothing is lost; stop further changes rather than skip the
+                // listeners after this one
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Record a storage failure, reported by sync and close, and stop the
+     * manager from accepting further changes
+     */
+    private void fail(IOException error) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = error;
+            }
+            lock.notifyAll();
+        }
+        manager.fail(error);
+    }
+
+    /**
+     * Background loop: take everything appended so far, write it, fsync once
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel channel;
+            long upTo;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    flusherIdle = true;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Keep flushing until closed
+                    }
+                    flusherIdle = false;
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = flushing;
+                flushing = batch;
+                channel = log;
+                upTo = appendedBytes;
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+            if (error != null) {
+                fail(error);
+                return;
+            }
+            synchronized (lock) {
+                durableBytes = upTo;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private FileChannel openLog(long gen) throws IOException {
+        FileChannel channel = FileChannel.open(logPath(directory, gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(directory);
+        return channel;
+    }
+
+    /**
+     * Write the whole roster to a temporary file, fsync it and move it
+     * into place, so a crash never leaves a half-written snapshot
+     */
+    private void writeSnapshot(long covered) throws IOException {
+        Path target = snapshotPath(directory, covered);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        MappedSnapshot.write(manager, temp);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Fsync a directory, so files created or renamed in it survive a crash.
+     * Windows cannot open a directory as a channel and needs no such sync.
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        if (System.getProperty("os.name", "").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Apply every intact record of a log. A torn or corrupt record can only
+     * be the tail of the newest log, written during a crash: replay stops
+     * there and the tail is cut off, so the log stays valid once newer
+     * logs follow it. In any other log it fails the replay.
+     */
+    private static void replayLog(Path path, GradeManager manager, boolean newest) throws IOException {
+        CRC32 crc = new CRC32();
+        long intact = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int size;
+                int checksum;
+                byte[] payload;
+                try {
+                    size = in.readInt();
+                    checksum = in.readInt();
+                    if (size <= 0 || size > MAX_RECORD) {
+                        break;
+                    }
+                    payload = new byte[size];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, size);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload), manager);
+                intact += RECORD_HEADER + size;
+            }
+        }
+        if (intact == Files.size(path)) {
+            return;
+        }
+        if (!newest) {
+            throw new IOException("Damaged journal log " + path.getFileName() + " after " + intact + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(intact);
+            channel.force(true);
+        }
+    }
+
+    private static void apply(ByteBuffer record, GradeManager manager) throws IOException {
+        byte type = record.get();
+        int id = record.getInt();
+        try {
+            switch (type) {
+                case ADD_STUDENT:
+                    byte[] name = new byte[record.getInt()];
+                    record.get(name);
+                    Student student = new Student(new String(name, StandardCharsets.UTF_8), id);
+                    int grades = record.getInt();
+                    for (int i = 0; i < grades; i++) {
+                        student.addGrade(record.getDouble());
+                    }
+                    manager.addStudent(student);
+                    break;
+                case ADD_GRADE:
+                    manager.addGrade(id, record.getDouble());
+                    break;
+                case REMOVE_STUDENT:
+                    manager.removeStudent(id);
+                    break;
+                default:
+                    throw new IOException("Unknown journal record type " + type);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Journal record does not apply: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<Long> generations(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    private static Path logPath(Path directory, long gen) {
+        return directory.resolve(String.format("%s%016d%s", LOG_PREFIX, gen, LOG_SUFFIX));
+    }
+
+    private static Path snapshotPath(Path directory, long gen) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, gen, SNAPSHOT_SUFFIX));
+    }
+}
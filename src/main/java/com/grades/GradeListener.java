@@ -0,0 +1,40 @@
+package com.grades;
+
+/**
+ * Receives every change made to a GradeManager, after it has been applied.
+ * Listeners run on the thread that made the change.
+ */
+public interface GradeListener {
+    /**
+     * Called after a student (with any grades it already had) is added
+     * @param student The added student
+     */
+    void studentAdded(Student student);
+
+    /**
+     * Called after a grade is added to a student
+     * @param student The student that received the grade
+     * @param grade The grade that was added
+     */
+    void gradeAdded(Student student, double grade);
+
+    /**
+     * Called after a batch of grades is added to one student, in the order
+     * they were given. By default each grade is passed to gradeAdded.
+     * @param student The student that received the grades
+     * @param grades Array holding the grades
+     * @param from Index of the first grade
+     * @param to Index after the last grade
+     */
+    default void gradesAdded(Student student, double[] grades, int from, int to) {
+        for (int i = from; i < to; i++) {
+            gradeAdded(student, grades[i]);
+        }
+    }
+
+    /**
+     * Called after a student is removed
+     * @param student The removed student
+     */
+    void studentRemoved(Student student);
+}
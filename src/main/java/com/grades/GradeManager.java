@@ -1,48 +1,188 @@
 package com.grades;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Manages multiple students and their grades
  */
 public class GradeManager {
-    private List<Student> students;
+    /** Row code from addGrades: the grade was added */
+    public static final byte GRADE_ADDED = 0;
+    /** Row code from addGrades: no student has the row's ID */
+    public static final byte UNKNOWN_STUDENT = 1;
+    /** Row code from addGrades: the grade is not between 0 and 100 */
+    public static final byte INVALID_GRADE = 2;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Where the per-student statistic columns are kept
+     */
+    public enum Storage {
+        /** Primitive arrays on the Java heap */
+        HEAP,
+        /** Direct memory outside the Java heap, not scanned by the garbage collector */
+        OFF_HEAP
+    }
+
+    // Students in insertion order; removed students leave a null hole
+    // until the next compaction, so removal never shifts the slots.
+    // Pages shared with snapshots are copied before a slot is changed.
+    private StudentSlots students;
+    private int slotCount;
+    private int studentCount;
+    private final StudentIndex index;
+    // Number of grades held by all students
+    private long gradeCount;
+
+    // Each student's count, average, highest and lowest grade, row for row
+    // with the slots, so class statistics are a scan over primitive columns
+    private final StudentColumns columns;
+
+    // Bumped by every mutation; the cached summary is valid while it matches
+    private long version;
+    private ClassSummary summary;
+    private long summaryVersion = -1;
+
+    // Students ranked by average; built on the first ranking query
+    private RankIndex ranking;
+
+    // Every grade in the class; built on the first distribution query
+    private GradeHistogram histogram;
+
+    private GradeListener[] listeners = new GradeListener[0];
+
+    // Set when a listener could not record a change; every later change is refused
+    private volatile Throwable failure;
+
+    // Operation counters and latencies; null while metrics are disabled
+    private GradeMetrics metrics;
+
+    // Scratch map from slot to batch group used by addGrades; all -1
+    // between batches
+    private int[] batchGroups = new int[0];
+
+    // Most recent read snapshot, reused while nothing has changed
+    private WeakReference<RosterSnapshot> lastSnapshot;
+
+    // Snapshot whose students are built on first use; slots set in
+    // unloaded have not been built yet
+    private MappedSnapshot snapshot;
+    private BitSet unloaded;
 
     /**
      * Constructor for GradeManager
      */
     public GradeManager() {
-        this.students = new ArrayList<>();
+        this(Storage.HEAP);
+    }
+
+    /**
+     * Constructor for a GradeManager with a choice of column storage
+     * @param storage Where the per-student statistic columns are kept
+     */
+    public GradeManager(Storage storage) {
+        this.students = new StudentSlots(INITIAL_CAPACITY);
+        this.index = new StudentIndex();
+        this.columns = storage == Storage.OFF_HEAP
+                ? StudentColumns.offHeap(INITIAL_CAPACITY)
+                : StudentColumns.onHeap(INITIAL_CAPACITY);
     }
 
     /**
      * Add a new student to the system
      * @param student The student to add
      * @throws IllegalArgumentException if student ID already exists
+     *         or the student already belongs to another manager
+     * @throws IllegalStateException if a journal failure stopped all changes
      */
     public void addStudent(Student student) {
-        for (Student s : students) {
-            if (s.getId() == student.getId()) {
-                throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        checkWritable();
+        long start = startTimer();
+        if (index.contains(student.getId())) {
+            throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        }
+        if (student.manager != null || student.concurrentManager != null) {
+            throw new IllegalArgumentException("Student with ID " + student.getId() + " belongs to another manager");
+        }
+        if (slotCount == students.capacity()) {
+            if (studentCount < slotCount / 2) {
+                compact();
+            } else {
+                students.grow(slotCount << 1);
+                columns.grow(students.capacity());
             }
         }
-        students.add(student);
+        index.put(student.getId(), slotCount);
+        columns.set(slotCount, student);
+        students.set(slotCount++, student);
+        studentCount++;
+        gradeCount += student.getGradeCount();
+        student.manager = this;
+        if (ranking != null) {
+            ranking.insert(student.getId(), student.getAverageGrade());
+        }
+        if (histogram != null) {
+            student.forEachGrade(histogram::add);
+        }
+        version++;
+        for (GradeListener listener : listeners) {
+            listener.studentAdded(student);
+        }
+        stopTimer(GradeMetrics.Operation.ADD_STUDENT, start);
     }
 
     /**
      * Remove a student by ID
      * @param studentId The ID of the student to remove
      * @return true if student was removed, false if not found
+     * @throws IllegalStateException if a journal failure stopped all changes
      */
     public boolean removeStudent(int studentId) {
-        for (int i = 0; i < students.size(); i++) {
-            if (students.get(i).getId() == studentId) {
-                students.remove(i);
-                return true;
-            }
+        long start = startTimer();
+        boolean removed = remove(studentId);
+        stopTimer(GradeMetrics.Operation.REMOVE, start);
+        return removed;
+    }
+
+    /**
+     * Remove a student by ID without recording the removal
+     */
+    private boolean remove(int studentId) {
+        checkWritable();
+        int slot = index.remove(studentId);
+        if (slot < 0) {
+            return false;
         }
-        return false;
+        Student removed = loadedAt(slot);
+        removed.manager = null;
+        if (ranking != null) {
+            ranking.remove(studentId, removed.getAverageGrade());
+        }
+        if (histogram != null) {
+            removed.forEachGrade(histogram::remove);
+        }
+        students.set(slot, null);
+        columns.clear(slot);
+        studentCount--;
+        gradeCount -= removed.getGradeCount();
+        version++;
+        while (slotCount > 0 && students.get(slotCount - 1) == null
+                && (snapshot == null || !unloaded.get(slotCount - 1))) {
+            slotCount--;
+        }
+        if (studentCount < slotCount / 4) {
+            compact();
+        }
+        for (GradeListener listener : listeners) {
+            listener.studentRemoved(removed);
+        }
+        return true;
     }
 
     /**
@@ -51,12 +191,233 @@ public class GradeManager {
      * @return The student, or null if not found
      */
     public Student findStudentById(int studentId) {
-        for (Student s : students) {
-            if (s.getId() == studentId) {
-                return s;
+        long start = startTimer();
+        Student student = studentAt(studentId);
+        stopTimer(GradeMetrics.Operation.LOOKUP, start);
+        return student;
+    }
+
+    /**
+     * Find a student by ID without recording a lookup
+     */
+    private Student studentAt(int studentId) {
+        int slot = index.get(studentId);
+        if (slot < 0) {
+            return null;
+        }
+        return loadedAt(slot);
+    }
+
+    /**
+     * Add a grade to a student by ID
+     * @param studentId The ID of the student
+     * @param grade The grade to add (0-100)
+     * @return true if the grade was added, false if the student was not found
+     * @throws IllegalArgumentException if grade is invalid
+     * @throws IllegalStateException if a journal failure stopped all changes
+     */
+    public boolean addGrade(int studentId, double grade) {
+        Student student = studentAt(studentId);
+        if (student == null) {
+            return false;
+        }
+        student.addGrade(grade);
+        return true;
+    }
+
+    /**
+     * Add a batch of grades. Every row is checked before any grade is
+     * added; the valid rows are then grouped by student, so each student's
+     * storage, ranking and statistic columns are updated once per batch,
+     * and the class summary is recomputed at most once, on the next read.
+     * Each student's grades keep their order within the batch. Listeners
+     * receive one gradesAdded call per student, right after that student's
+     * grades are applied.
+     * @param ids Student ID of each row
+     * @param grades Grade of each row (0-100)
+     * @return A code per row: GRADE_ADDED, UNKNOWN_STUDENT or INVALID_GRADE
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @throws IllegalStateException if a journal failure stopped all changes
+     */
+    public byte[] addGrades(int[] ids, double[] grades) {
+        if (ids.length != grades.length) {
+            throw new IllegalArgumentException("Got " + ids.length + " IDs but " + grades.length + " grades");
+        }
+        checkWritable();
+        long start = startTimer();
+        byte[] codes = applyBatch(ids, grades);
+        stopTimer(GradeMetrics.Operation.ADD_GRADES, start);
+        return codes;
+    }
+
+    /**
+     * Validate, group and apply the rows of a batch
+     */
+    private byte[] applyBatch(int[] ids, double[] grades) {
+        int n = ids.length;
+        byte[] codes = new byte[n];
+        int[] rowGroup = new int[n];
+        if (batchGroups.length < slotCount) {
+            batchGroups = new int[students.capacity()];
+            Arrays.fill(batchGroups, -1);
+        }
+        int[] groupOfSlot = batchGroups;
+        int[] groupSlots = new int[16];
+        int[] groupStarts = new int[17];
+        int groupCount = 0;
+        int valid = 0;
+        for (int i = 0; i < n; i++) {
+            double grade = grades[i];
+            if (!(grade >= 0 && grade <= 100)) {
+                codes[i] = INVALID_GRADE;
+                continue;
+            }
+            int slot = index.get(ids[i]);
+            if (slot < 0) {
+                codes[i] = UNKNOWN_STUDENT;
+                continue;
             }
+            int group = groupOfSlot[slot];
+            if (group < 0) {
+                group = groupCount++;
+                if (group == groupSlots.length) {
+                    groupSlots = Arrays.copyOf(groupSlots, group << 1);
+                    groupStarts = Arrays.copyOf(groupStarts, (group << 1) + 1);
+                }
+                groupOfSlot[slot] = group;
+                groupSlots[group] = slot;
+            }
+            groupStarts[group + 1]++;
+            rowGroup[i] = group;
+            valid++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupOfSlot[groupSlots[g]] = -1;
         }
-        return null;
+        if (valid == 0) {
+            return codes;
+        }
+
+        // Counting sort of the valid grades by group, stable within a group
+        for (int g = 0; g < groupCount; g++) {
+            groupStarts[g + 1] += groupStarts[g];
+        }
+        double[] ordered = new double[valid];
+        int[] fill = Arrays.copyOf(groupStarts, groupCount);
+        for (int i = 0; i < n; i++) {
+            if (codes[i] == GRADE_ADDED) {
+                ordered[fill[rowGroup[i]]++] = grades[i];
+            }
+        }
+
+        for (int g = 0; g < groupCount; g++) {
+            int slot = groupSlots[g];
+            applyGrades(loadedAt(slot), slot, ordered, groupStarts[g], groupStarts[g + 1]);
+        }
+        return codes;
+    }
+
+    /**
+     * Record a run of validated grades for the student at a slot
+     */
+    private void applyGrades(Student student, int slot, double[] values, int from, int to) {
+        if (ranking != null) {
+            ranking.remove(student.getId(), student.getAverageGrade());
+        }
+        student.appendGrades(values, from, to);
+        gradeCount += to - from;
+        columns.set(slot, student);
+        if (ranking != null) {
+            ranking.insert(student.getId(), student.getAverageGrade());
+        }
+        if (histogram != null) {
+            for (int i = from; i < to; i++) {
+                histogram.add(values[i]);
+            }
+        }
+        // Bumped per student rather than per grade, so a listener reading
+        // the summary mid-batch never sees a stale cached result
+        version++;
+        for (GradeListener listener : listeners) {
+            listener.gradesAdded(student, values, from, to);
+        }
+    }
+
+    /**
+     * Record a validated grade for one of this manager's students.
+     * Called by Student.addGrade so derived state stays in step.
+     */
+    void applyGrade(Student student, double grade) {
+        checkWritable();
+        long start = startTimer();
+        if (ranking != null) {
+            ranking.remove(student.getId(), student.getAverageGrade());
+        }
+        student.appendGrade(grade);
+        gradeCount++;
+        columns.set(index.get(student.getId()), student);
+        if (ranking != null) {
+            ranking.insert(student.getId(), student.getAverageGrade());
+        }
+        if (histogram != null) {
+            histogram.add(grade);
+        }
+        version++;
+        for (GradeListener listener : listeners) {
+            listener.gradeAdded(student, grade);
+        }
+        stopTimer(GradeMetrics.Operation.ADD_GRADE, start);
+    }
+
+    /**
+     * Refuse every later change. Called by a listener that could not
+     * record a change, such as a journal whose log cannot be written, so
+     * the students in memory never drift further from what is stored.
+     * @param cause The failure
+     */
+    void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+    /**
+     * Throw if a listener has failed
+     * @throws IllegalStateException if changes are refused
+     */
+    private void checkWritable() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Changes are refused after a storage failure: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Register a listener for every student and grade change
+     * @param listener The listener to add
+     */
+    public void addListener(GradeListener listener) {
+        GradeListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Unregister a listener
+     * @param listener The listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeListener(GradeListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GradeListener[] updated = new GradeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -64,7 +425,34 @@ public class GradeManager {
      * @return List of all students
      */
     public List<Student> getAllStudents() {
-        return new ArrayList<>(students);
+        long start = startTimer();
+        loadAll();
+        List<Student> all = new ArrayList<>(studentCount);
+        for (int i = 0; i < slotCount; i++) {
+            Student s = students.get(i);
+            if (s != null) {
+                all.add(s);
+            }
+        }
+        stopTimer(GradeMetrics.Operation.LIST, start);
+        return all;
+    }
+
+    /**
+     * Visit every student in insertion order without copying the roster.
+     * The action must not add or remove students.
+     * @param action Action run for each student
+     */
+    public void forEachStudent(Consumer<Student> action) {
+        long start = startTimer();
+        loadAll();
+        for (int i = 0; i < slotCount; i++) {
+            Student s = students.get(i);
+            if (s != null) {
+                action.accept(s);
+            }
+        }
+        stopTimer(GradeMetrics.Operation.LIST, start);
     }
 
     /**
@@ -72,7 +460,136 @@ public class GradeManager {
      * @return Number of students
      */
     public int getStudentCount() {
-        return students.size();
+        return studentCount;
+    }
+
+    /**
+     * Get the number of grades held by all students
+     * @return Number of grades
+     */
+    public long getTotalGradeCount() {
+        return gradeCount;
+    }
+
+    /**
+     * Start counting and timing every operation. Without metrics an
+     * operation costs one extra null check.
+     * @return The metrics, kept until disableMetrics is called
+     */
+    public GradeMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new GradeMetrics(this);
+        }
+        return metrics;
+    }
+
+    /**
+     * Stop counting and timing operations and drop the recorded metrics
+     */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * Get the metrics of this manager
+     * @return The metrics, or null if they are disabled
+     */
+    public GradeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Read the clock if metrics are enabled
+     */
+    private long startTimer() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Record an operation started at startTimer's reading, if metrics
+     * were already enabled when it started
+     */
+    private void stopTimer(GradeMetrics.Operation operation, long start) {
+        GradeMetrics m = metrics;
+        if (m != null && start != 0) {
+            m.record(operation, start);
+        }
+    }
+
+    /**
+     * Squeeze out the holes left by removed students, keeping insertion
+     * order and re-pointing the index at the new slots.
+     */
+    private void compact() {
+        loadAll();
+        int j = 0;
+        for (int i = 0; i < slotCount; i++) {
+            Student s = students.get(i);
+            if (s != null) {
+                if (i != j) {
+                    students.set(j, s);
+                    columns.move(i, j);
+                    index.put(s.getId(), j);
+                }
+                j++;
+            }
+        }
+        for (int i = j; i < slotCount; i++) {
+            students.set(i, null);
+        }
+        slotCount = j;
+    }
+
+    /**
+     * Take an immutable, consistent view of every student's statistics and
+     * the class distribution, for reports that run while the manager keeps
+     * changing. The view is O(1) to take: it shares the pages of the
+     * statistic columns and of the student slots, and the first change to
+     * a shared page afterwards copies only that page. Must be called on the thread that
+     * changes the manager, or under the same lock; the snapshot itself can
+     * then be read from any thread.
+     * @return The snapshot
+     */
+    public RosterSnapshot snapshot() {
+        long start = startTimer();
+        RosterSnapshot view = lastSnapshot == null ? null : lastSnapshot.get();
+        if (view == null || view.getVersion() != version) {
+            if (snapshot != null && summaryVersion != version) {
+                // Builds the top and bottom student, which the view cannot load itself
+                summary = computeSummary();
+                summaryVersion = version;
+            }
+            GradeHistogram distribution = ensureHistogram().copy();
+            view = new RosterSnapshot(version, studentCount, slotCount, students.freeze(), columns.freeze(), distribution,
+                    summaryVersion == version ? summary : null, snapshot);
+            // Weak, so an unused snapshot does not keep old pages alive
+            lastSnapshot = new WeakReference<>(view);
+        }
+        stopTimer(GradeMetrics.Operation.SNAPSHOT, start);
+        return view;
+    }
+
+    /**
+     * Get the class-wide statistics, computed in one pass over all students.
+     * The result is cached until the next student or grade change.
+     * @return The class summary
+     */
+    public ClassSummary getClassSummary() {
+        long start = startTimer();
+        if (summaryVersion != version) {
+            summary = computeSummary();
+            summaryVersion = version;
+        }
+        stopTimer(GradeMetrics.Operation.SUMMARY, start);
+        return summary;
+    }
+
+    /**
+     * Get a counter that changes whenever a student or grade changes
+     * @return The modification version
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -80,14 +597,7 @@ public class GradeManager {
      * @return The average grade across all students
      */
     public double getClassAverage() {
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-        double totalAverage = 0;
-        for (Student s : students) {
-            totalAverage += s.getAverageGrade();
-        }
-        return totalAverage / students.size();
+        return getClassSummary().getClassAverage();
     }
 
     /**
@@ -95,17 +605,7 @@ public class GradeManager {
      * @return The highest grade
      */
     public double getClassHighest() {
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-        double max = students.get(0).getHighestGrade();
-        for (Student s : students) {
-            double highest = s.getHighestGrade();
-            if (highest > max) {
-                max = highest;
-            }
-        }
-        return max;
+        return getClassSummary().getClassHighest();
     }
 
     /**
@@ -113,17 +613,7 @@ public class GradeManager {
      * @return The lowest grade
      */
     public double getClassLowest() {
-        if (students.isEmpty()) {
-            return 0.0;
-        }
-        double min = students.get(0).getLowestGrade();
-        for (Student s : students) {
-            double lowest = s.getLowestGrade();
-            if (lowest < min) {
-                min = lowest;
-            }
-        }
-        return min;
+        return getClassSummary().getClassLowest();
     }
 
     /**
@@ -131,16 +621,7 @@ public class GradeManager {
      * @return The student with highest average, or null if no students
      */
     public Student getTopStudent() {
-        if (students.isEmpty()) {
-            return null;
-        }
-        Student topStudent = students.get(0);
-        for (Student s : students) {
-            if (s.getAverageGrade() > topStudent.getAverageGrade()) {
-                topStudent = s;
-            }
-        }
-        return topStudent;
+        return getClassSummary().getTopStudent();
     }
 
     /**
@@ -148,15 +629,267 @@ public class GradeManager {
      * @return The student with lowest average, or null if no students
      */
     public Student getBottomStudent() {
-        if (students.isEmpty()) {
-            return null;
+        return getClassSummary().getBottomStudent();
+    }
+
+    /**
+     * Get a percentile of every grade in the class
+     * @param percentile Percentile between 0 and 100
+     * @return The grade at that percentile (to 0.1), or 0 if no grades exist
+     */
+    public double getClassPercentile(double percentile) {
+        long start = startTimer();
+        double grade = ensureHistogram().getPercentile(percentile);
+        stopTimer(GradeMetrics.Operation.DISTRIBUTION, start);
+        return grade;
+    }
+
+    /**
+     * Get the distribution of every grade in the class. The histogram is
+     * built on first use and then kept up to date by every change.
+     * @return Live histogram of all grades
+     */
+    public GradeHistogram getGradeHistogram() {
+        long start = startTimer();
+        GradeHistogram built = ensureHistogram();
+        stopTimer(GradeMetrics.Operation.DISTRIBUTION, start);
+        return built;
+    }
+
+    /**
+     * Build the histogram on first use
+     */
+    private GradeHistogram ensureHistogram() {
+        if (histogram == null) {
+            loadAll();
+            GradeHistogram built = new GradeHistogram();
+            for (int i = 0; i < slotCount; i++) {
+                Student s = students.get(i);
+                if (s != null) {
+                    s.forEachGrade(built::add);
+                }
+            }
+            histogram = built;
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the students with the highest averages
+     * @param k Maximum number of students to return
+     * @return Up to k students, best average first
+     */
+    public List<Student> getTopStudents(int k) {
+        return getRankedStudents(0, k);
+    }
+
+    /**
+     * Get the students with the lowest averages
+     * @param k Maximum number of students to return
+     * @return Up to k students, lowest average first
+     */
+    public List<Student> getBottomStudents(int k) {
+        long start = startTimer();
+        int[] ids = rankedIds(0, k, true);
+        List<Student> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(studentAt(id));
+        }
+        stopTimer(GradeMetrics.Operation.RANKING, start);
+        return result;
+    }
+
+    /**
+     * Get a page of students in rank order, best average first.
+     * Students with equal averages are ordered by ID.
+     * @param offset Number of top-ranked students to skip
+     * @param limit Maximum number of students to return
+     * @return The students at ranks offset+1 to offset+limit
+     */
+    public List<Student> getRankedStudents(int offset, int limit) {
+        long start = startTimer();
+        int[] ids = rankedIds(offset, limit, false);
+        List<Student> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(studentAt(id));
+        }
+        stopTimer(GradeMetrics.Operation.RANKING, start);
+        return result;
+    }
+
+    /**
+     * Visit a page of students in rank order without copying the roster.
+     * The action must not change students or grades.
+     * @param offset Number of students to skip
+     * @param limit Maximum number of students to visit
+     * @param lowestFirst true to start from the lowest average
+     * @param action Action run for each student
+     */
+    public void forEachRanked(int offset, int limit, boolean lowestFirst, Consumer<Student> action) {
+        long start = startTimer();
+        for (int id : rankedIds(offset, limit, lowestFirst)) {
+            action.accept(studentAt(id));
+        }
+        stopTimer(GradeMetrics.Operation.RANKING, start);
+    }
+
+    /**
+     * Get the IDs of a page of the ranking. The page is read before any
+     * student is built, since building one from a mapped snapshot can
+     * re-key it in the ranking.
+     */
+    private int[] rankedIds(int offset, int limit, boolean lowestFirst) {
+        if (offset < 0 || limit <= 0 || offset >= studentCount) {
+            return new int[0];
+        }
+        int[] ids = new int[Math.min(limit, studentCount - offset)];
+        int[] n = {0};
+        ensureRanking().forEach(offset, ids.length, lowestFirst, id -> ids[n[0]++] = id);
+        return n[0] == ids.length ? ids : Arrays.copyOf(ids, n[0]);
+    }
+
+    /**
+     * Get a student's rank by average grade
+     * @param studentId The ID of the student
+     * @return The rank (1 for the best average), or -1 if not found
+     */
+    public int getRank(int studentId) {
+        long start = startTimer();
+        Student student = studentAt(studentId);
+        int rank = student == null ? -1 : ensureRanking().rankOf(studentId, student.getAverageGrade()) + 1;
+        stopTimer(GradeMetrics.Operation.RANKING, start);
+        return rank;
+    }
+
+    /**
+     * Build the ranking from the statistic columns on first use;
+     * afterwards it is kept up to date by every student and grade change.
+     */
+    private RankIndex ensureRanking() {
+        if (ranking == null) {
+            RankIndex built = new RankIndex();
+            for (int i = 0; i < slotCount; i++) {
+                if (columns.count(i) != StudentColumns.EMPTY) {
+                    built.insert(columns.id(i), columns.average(i));
+                }
+            }
+            ranking = built;
+        }
+        return ranking;
+    }
+
+    /**
+     * Fused pass computing every class statistic at once, as a scan over
+     * the statistic columns (in parallel for large rosters). Ties keep the
+     * earliest-added student. Of a mapped snapshot's students, only the
+     * top and bottom student are built.
+     */
+    private ClassSummary computeSummary() {
+        GradeHistogram distribution = ensureHistogram();
+        StatsAccumulator stats = columns.scan(slotCount);
+        if (stats.getCount() == 0) {
+            return new ClassSummary(0, 0.0, 0.0, 0.0, null, 0.0, null, 0.0, distribution);
+        }
+        return new ClassSummary(studentCount, stats.getMean(), stats.getHighest(), stats.getLowest(),
+                loadedAt(stats.getTopSlot()), stats.getTopAverage(),
+                loadedAt(stats.getBottomSlot()), stats.getBottomAverage(), distribution);
+    }
+
+    /**
+     * Serve the students of a mapped snapshot, building each one on first
+     * use. The statistic columns and histogram are filled from the
+     * snapshot's table, so class statistics need no Student.
+     * @param source The mapped snapshot
+     */
+    void attachSnapshot(MappedSnapshot source) {
+        if (studentCount != 0 || slotCount != 0) {
+            throw new IllegalStateException("Snapshot can only be attached to an empty manager");
         }
-        Student bottomStudent = students.get(0);
-        for (Student s : students) {
-            if (s.getAverageGrade() < bottomStudent.getAverageGrade()) {
-                bottomStudent = s;
+        int count = source.size();
+        if (students.capacity() < count) {
+            students.grow(count);
+            columns.grow(count);
+        }
+        index.reserve(count);
+        long grades = 0;
+        for (int i = 0; i < count; i++) {
+            int id = source.id(i);
+            if (index.put(id, i) >= 0) {
+                throw new IllegalArgumentException("Snapshot holds duplicate student ID " + id);
             }
+            int gradeCountOf = source.gradeCount(i);
+            columns.set(i, id, gradeCountOf, source.average(i), source.highest(i), source.lowest(i));
+            grades += gradeCountOf;
+        }
+        slotCount = count;
+        studentCount = count;
+        gradeCount = grades;
+        histogram = source.histogram();
+        unloaded = new BitSet(count);
+        unloaded.set(0, count);
+        snapshot = source;
+        version++;
+    }
+
+    /**
+     * Get the student in a slot, building it first if it is still only
+     * in the mapped snapshot
+     */
+    private Student loadedAt(int slot) {
+        if (snapshot != null && unloaded.get(slot)) {
+            load(slot);
+        }
+        return students.get(slot);
+    }
+
+    /**
+     * Get the number of mapped snapshot students not built yet
+     * @return Number of unbuilt students
+     */
+    int getUnloadedCount() {
+        return unloaded == null ? 0 : unloaded.cardinality();
+    }
+
+    /**
+     * Build the snapshot student at a slot
+     */
+    private void load(int slot) {
+        MappedSnapshot source = snapshot;
+        install(slot, source.load(slot));
+        unloaded.clear(slot);
+        if (unloaded.isEmpty()) {
+            snapshot = null;
+            unloaded = null;
+        }
+    }
+
+    /**
+     * Build every snapshot student not built yet, then drop the snapshot
+     */
+    private void loadAll() {
+        if (snapshot == null) {
+            return;
+        }
+        for (int slot = unloaded.nextSetBit(0); slot >= 0; slot = unloaded.nextSetBit(slot + 1)) {
+            install(slot, snapshot.load(slot));
+        }
+        snapshot = null;
+        unloaded = null;
+    }
+
+    /**
+     * Put a student built from the snapshot into its slot. The ranking was
+     * built from the stored average; it is re-keyed in case the rebuilt
+     * student's average differs in the last bit.
+     */
+    private void install(int slot, Student student) {
+        student.manager = this;
+        double stored = columns.average(slot);
+        if (ranking != null && Double.compare(stored, student.getAverageGrade()) != 0) {
+            ranking.remove(student.getId(), stored);
+            ranking.insert(student.getId(), student.getAverageGrade());
         }
-        return bottomStudent;
+        students.set(slot, student);
+        columns.set(slot, student);
     }
 }
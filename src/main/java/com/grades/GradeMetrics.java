@@ -0,0 +1,315 @@
+package com.grades;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Operation counters and latency histograms for a GradeManager, enabled
+ * with GradeManager.enableMetrics. A manager without metrics only pays a
+ * null check per operation.
+ *
+ * Every counter is a LongAdder, so recording from many threads does not
+ * contend on one cache line. Latencies go into log-linear buckets: eight
+ * buckets per power of two, so a percentile is within 12.5% of the true
+ * value at any scale from nanoseconds to minutes. Operations slower than
+ * the slow threshold are also committed as a com.grades.SlowOperation
+ * JFR event when a flight recording is running.
+ */
+public final class GradeMetrics {
+    /**
+     * Operations that are counted and timed
+     */
+    public enum Operation {
+        /** addStudent */
+        ADD_STUDENT,
+        /** A single grade added through addGrade or Student.addGrade */
+        ADD_GRADE,
+        /** A call to addGrades, whatever its number of rows */
+        ADD_GRADES,
+        /** findStudentById */
+        LOOKUP,
+        /** removeStudent */
+        REMOVE,
+        /** Class summary and the class average, highest and lowest */
+        SUMMARY,
+        /** Top, bottom and paged ranking queries and getRank */
+        RANKING,
+        /** Walks over every student in insertion order */
+        LIST,
+        /** Class percentiles and the grade histogram */
+        DISTRIBUTION,
+        /** Taking a read snapshot */
+        SNAPSHOT
+    }
+
+    // Sub-buckets per power of two, as a shift
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // Latencies are clamped below 2^40 ns, about 18 minutes
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+    private static final long DEFAULT_SLOW_THRESHOLD = 1_000_000;
+
+    private final GradeManager manager;
+    private final OperationStats[] stats;
+    private volatile long slowThresholdNanos = DEFAULT_SLOW_THRESHOLD;
+
+    /**
+     * Constructor for the metrics of one manager
+     * @param manager The manager whose roster the gauges read
+     */
+    GradeMetrics(GradeManager manager) {
+        this.manager = manager;
+        Operation[] operations = Operation.values();
+        stats = new OperationStats[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            stats[i] = new OperationStats();
+        }
+    }
+
+    /**
+     * Record one completed operation
+     * @param operation The operation
+     * @param startNanos System.nanoTime() when it started
+     */
+    void record(Operation operation, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        OperationStats s = stats[operation.ordinal()];
+        s.totalNanos.add(nanos);
+        s.maxNanos.accumulate(nanos);
+        s.buckets[bucketOf(nanos)].increment();
+        if (nanos >= slowThresholdNanos) {
+            SlowOperation event = new SlowOperation();
+            if (event.isEnabled()) {
+                event.operation = operation.name();
+                event.latency = nanos;
+                event.rosterSize = manager.getStudentCount();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Bucket holding a latency: values below SUB_COUNT have a bucket each,
+     * larger ones are split by their exponent and next SUB_BITS bits
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_COUNT) {
+            return nanos <= 0 ? 0 : (int) nanos;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT - 1);
+        int sub = exponent == MAX_EXPONENT - 1 && nanos >= 1L << MAX_EXPONENT
+                ? SUB_COUNT - 1
+                : (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Largest latency that falls in a bucket
+     */
+    static long bucketHigh(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long sub = SUB_COUNT + (bucket & (SUB_COUNT - 1));
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Get the latency above which operations are reported to JFR
+     * @return The threshold in nanoseconds
+     */
+    public long getSlowThresholdNanos() {
+        return slowThresholdNanos;
+    }
+
+    /**
+     * Set the latency above which operations are reported to JFR
+     * @param nanos The threshold in nanoseconds
+     * @throws IllegalArgumentException if nanos is negative
+     */
+    public void setSlowThresholdNanos(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        slowThresholdNanos = nanos;
+    }
+
+    /**
+     * Get the number of completed operations of a kind
+     * @param operation The operation
+     * @return Number of operations recorded
+     */
+    public long getCount(Operation operation) {
+        return stats[operation.ordinal()].count();
+    }
+
+    /**
+     * Get the mean latency of an operation
+     * @param operation The operation
+     * @return Mean latency in nanoseconds, or 0 if none was recorded
+     */
+    public double getMeanNanos(Operation operation) {
+        OperationStats s = stats[operation.ordinal()];
+        long count = s.count();
+        return count == 0 ? 0.0 : (double) s.totalNanos.sum() / count;
+    }
+
+    /**
+     * Get the highest latency of an operation
+     * @param operation The operation
+     * @return Highest latency in nanoseconds, or 0 if none was recorded
+     */
+    public long getMaxNanos(Operation operation) {
+        return stats[operation.ordinal()].maxNanos.get();
+    }
+
+    /**
+     * Get a latency percentile of an operation
+     * @param operation The operation
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding that percentile, in
+     *         nanoseconds, or 0 if none was recorded
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getPercentileNanos(Operation operation, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        OperationStats s = stats[operation.ordinal()];
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = s.buckets[b].sum();
+            total += counts[b];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(bucketHigh(b), s.maxNanos.get());
+            }
+        }
+        return s.maxNanos.get();
+    }
+
+    /**
+     * Gauge: number of students in the roster
+     * @return Number of students
+     */
+    public int getStudentCount() {
+        return manager.getStudentCount();
+    }
+
+    /**
+     * Gauge: number of grades held by the roster
+     * @return Number of grades
+     */
+    public long getGradeCount() {
+        return manager.getTotalGradeCount();
+    }
+
+    /**
+     * Gauge: estimate of the Java heap in use by the whole process
+     * @return Heap bytes in use
+     */
+    public long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Forget every recorded operation
+     */
+    public void reset() {
+        for (OperationStats s : stats) {
+            s.totalNanos.reset();
+            s.maxNanos.reset();
+            for (LongAdder bucket : s.buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    /**
+     * Get every gauge and operation statistic as a JSON object, with
+     * operation names in lower case and latencies in nanoseconds
+     * @return The JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"students\":").append(getStudentCount())
+                .append(",\"grades\":").append(getGradeCount())
+                .append(",\"usedHeapBytes\":").append(getUsedHeapBytes())
+                .append(",\"operations\":{");
+        for (Operation operation : Operation.values()) {
+            if (operation.ordinal() > 0) {
+                json.append(',');
+            }
+            Json.quote(json, operation.name().toLowerCase(Locale.ROOT));
+            json.append(":{\"count\":").append(getCount(operation))
+                    .append(",\"meanNanos\":").append(Math.round(getMeanNanos(operation)))
+                    .append(",\"p50Nanos\":").append(getPercentileNanos(operation, 50))
+                    .append(",\"p99Nanos\":").append(getPercentileNanos(operation, 99))
+                    .append(",\"p999Nanos\":").append(getPercentileNanos(operation, 99.9))
+                    .append(",\"maxNanos\":").append(getMaxNanos(operation))
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Counters of one operation; the count is the sum of the buckets
+     */
+    private static final class OperationStats {
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        OperationStats() {
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * JFR event for an operation slower than the slow threshold
+     */
+    @Name("com.grades.SlowOperation")
+    @Label("Slow Grade Operation")
+    @Category("Student Grades")
+    @StackTrace(false)
+    static final class SlowOperation extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Roster Size")
+        int rosterSize;
+    }
+}
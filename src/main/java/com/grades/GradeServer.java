@@ -0,0 +1,600 @@
+package com.grades;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/JSON front-end for a GradeManager, built on the JDK's embedded server.
+ * Each request runs on its own virtual thread when the runtime has them and
+ * on a fixed worker pool otherwise. GradeManager is not thread-safe, so every
+ * request holds one lock while it touches the manager. The summary is
+ * computed outside the lock, from a snapshot taken under it.
+ * /summary/stream keeps the response open and sends a server-sent event
+ * for every change of the summary, through a SummaryFeed. Events are
+ * written on threads of their own, so slow or idle stream clients never
+ * hold the threads that serve the other endpoints, and the number of open
+ * streams is capped.
+ *
+ * Small responses wait on delayed ACKs (about 40 ms each) unless the JVM
+ * runs with -Dsun.net.httpserver.nodelay=true. The property applies to
+ * every embedded server in the process, so the launcher sets it, not this
+ * class; StudentGradeApp does so for --serve.
+ *
+ * Endpoints:
+ * <pre>
+ * POST   /students              {"id":17,"name":"Alice"}        add a student
+ * GET    /students/{id}                                         student detail
+ * DELETE /students/{id}                                         remove a student
+ * POST   /students/{id}/grades  {"grade":93.5} or {"grades":[...]}
+ *                                                               add grades to one student
+ * POST   /grades                [{"id":17,"grade":93.5},...]    add grades in a batch
+ * GET    /summary                                               class summary
+ * GET    /summary/stream                                        summary changes as server-sent events
+ * GET    /metrics                                               operation counts and latencies
+ * </pre>
+ */
+public class GradeServer {
+    /** Largest request body accepted, in bytes */
+    public static final int MAX_BODY = 16 << 20;
+    /** Most /summary/stream responses open at once; more get status 503 */
+    public static final int MAX_STREAMS = 256;
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    private final GradeManager manager;
+    private final Object lock = new Object();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Refreshes the feed and writes events, apart from the request workers
+    private final ExecutorService streamExecutor;
+    private final SummaryFeed feed;
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    /**
+     * Constructor for a server on a local address; call start() to accept requests
+     * @param manager The manager to serve
+     * @param address Address to bind, port 0 for any free port
+     * @throws IOException if the address cannot be bound
+     */
+    public GradeServer(GradeManager manager, InetSocketAddress address) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(address, 1024);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        this.streamExecutor = daemonPool("grade-server-events-", 0);
+        this.feed = new SummaryFeed(manager, lock, streamExecutor, SummaryFeed.DEFAULT_BUFFER_SIZE);
+        server.createContext("/students", this::handleStudents);
+        server.createContext("/grades", this::handleBatch);
+        server.createContext("/summary", this::handleSummary);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * Start accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop the server, giving running requests up to a second to finish
+     */
+    public void stop() {
+        feed.close();
+        server.stop(1);
+        executor.shutdown();
+        streamExecutor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+            streamExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the port the server is bound to
+     * @return The local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            // The context matches any path starting with /students
+            if (!path.equals("/students") && !path.startsWith("/students/")) {
+                throw new Failure(404, "No such endpoint");
+            }
+            String[] parts = path.split("/");
+            String method = exchange.getRequestMethod();
+            // parts[0] is empty and parts[1] is "students"
+            if (path.equals("/students")) {
+                requireMethod(method, "POST");
+                Map<String, Object> body = asObject(readBody(exchange));
+                int id = intField(body, "id");
+                Object name = body.get("name");
+                if (!(name instanceof String) || ((String) name).trim().isEmpty()) {
+                    throw new Failure(400, "Field 'name' must be a non-empty string");
+                }
+                StringBuilder json = new StringBuilder(128);
+                synchronized (lock) {
+                    if (manager.findStudentById(id) != null) {
+                        throw new Failure(409, "Student with ID " + id + " already exists");
+                    }
+                    Student student = new Student(((String) name).trim(), id);
+                    manager.addStudent(student);
+                    writeStudent(json, student, false);
+                }
+                send(exchange, 201, json);
+                return;
+            }
+            if (parts.length < 3) {
+                throw new Failure(404, "No such endpoint");
+            }
+            int id = pathId(parts[2]);
+            if (parts.length == 3 && method.equals("GET")) {
+                StringBuilder json = new StringBuilder(256);
+                synchronized (lock) {
+                    writeStudent(json, requireStudent(id), true);
+                }
+                send(exchange, 200, json);
+            } else if (parts.length == 3 && method.equals("DELETE")) {
+                synchronized (lock) {
+                    if (!manager.removeStudent(id)) {
+                        throw new Failure(404, "Student with ID " + id + " not found");
+                    }
+                }
+                send(exchange, 204, null);
+            } else if (parts.length == 3) {
+                throw new Failure(405, "Use GET or DELETE");
+            } else if (parts.length == 4 && parts[3].equals("grades")) {
+                requireMethod(method, "POST");
+                Map<String, Object> body = asObject(readBody(exchange));
+                double[] grades;
+                if (body.containsKey("grades")) {
+                    List<?> list = asList(body.get("grades"), "grades");
+                    grades = new double[list.size()];
+                    for (int i = 0; i < grades.length; i++) {
+                        grades[i] = gradeValue(list.get(i));
+                    }
+                } else {
+                    grades = new double[] {gradeValue(body.get("grade"))};
+                }
+                StringBuilder json = new StringBuilder(256);
+                synchronized (lock) {
+                    Student student = requireStudent(id);
+                    for (double grade : grades) {
+                        student.addGrade(grade);
+                    }
+                    writeStudent(json, student, false);
+                }
+                send(exchange, 200, json);
+            } else {
+                throw new Failure(404, "No such endpoint");
+            }
+        } catch (Failure e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            // The manager refuses changes after a storage failure
+            sendError(exchange, 503, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/grades")) {
+                throw new Failure(404, "No such endpoint");
+            }
+            requireMethod(exchange.getRequestMethod(), "POST");
+            List<?> rows = asList(readBody(exchange), "body");
+            int n = rows.size();
+            int[] ids = new int[n];
+            double[] grades = new double[n];
+            String[] errors = new String[n];
+            for (int i = 0; i < n; i++) {
+                try {
+                    Map<String, Object> row = asObject(rows.get(i));
+                    ids[i] = intField(row, "id");
+                    grades[i] = gradeValue(row.get("grade"));
+                } catch (IllegalArgumentException e) {
+                    errors[i] = e.getMessage();
+                    // Rejected by addGrades as well, keeping the message above
+                    grades[i] = Double.NaN;
+                }
+            }
+            byte[] codes;
+            synchronized (lock) {
+                codes = manager.addGrades(ids, grades);
+            }
+            int added = 0;
+            for (int i = 0; i < n; i++) {
+                if (codes[i] == GradeManager.GRADE_ADDED) {
+                    added++;
+                } else if (errors[i] == null) {
+                    errors[i] = codes[i] == GradeManager.UNKNOWN_STUDENT
+                            ? "Student with ID " + ids[i] + " not found"
+                            : "Grade must be between 0 and 100";
+                }
+            }
+            StringBuilder json = new StringBuilder(64);
+            json.append("{\"added\":").append(added).append(",\"rejected\":[");
+            boolean first = true;
+            for (int i = 0; i < n; i++) {
+                if (errors[i] != null) {
+                    json.append(first ? "" : ",").append("{\"index\":").append(i).append(",\"error\":");
+                    Json.quote(json, errors[i]);
+                    json.append('}');
+                    first = false;
+                }
+            }
+            json.append("]}");
+            send(exchange, 200, json);
+        } catch (Failure e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            // The manager refuses changes after a storage failure
+            sendError(exchange, 503, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSummary(HttpExchange exchange) throws IOException {
+        boolean streaming = false;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/summary/stream")) {
+                requireMethod(exchange.getRequestMethod(), "GET");
+                if (openStreams.incrementAndGet() > MAX_STREAMS) {
+                    openStreams.decrementAndGet();
+                    throw new Failure(503, "Too many open streams");
+                }
+                EventStream stream = new EventStream(exchange, openStreams);
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                try {
+                    exchange.sendResponseHeaders(200, 0);
+                } catch (IOException e) {
+                    stream.end();
+                    throw e;
+                }
+                // The exchange stays open until the subscription ends
+                streaming = true;
+                feed.subscribe(stream);
+                return;
+            }
+            if (!path.equals("/summary")) {
+                throw new Failure(404, "No such endpoint");
+            }
+            requireMethod(exchange.getRequestMethod(), "GET");
+            RosterSnapshot snapshot;
+            synchronized (lock) {
+                snapshot = manager.snapshot();
+            }
+            // Computed outside the lock, so writers are not held up
+            StringBuilder json = new StringBuilder(512);
+            writeSummary(json, snapshot.getClassSummary());
+            send(exchange, 200, json);
+        } catch (Failure e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalStateException e) {
+            sendError(exchange, 503, e.getMessage());
+        } finally {
+            if (!streaming) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+                throw new Failure(404, "No such endpoint");
+            }
+            requireMethod(exchange.getRequestMethod(), "GET");
+            StringBuilder json = new StringBuilder(2048);
+            synchronized (lock) {
+                GradeMetrics metrics = manager.getMetrics();
+                if (metrics == null) {
+                    throw new Failure(404, "Metrics are disabled");
+                }
+                json.append(metrics.toJson());
+            }
+            send(exchange, 200, json);
+        } catch (Failure e) {
+            sendError(exchange, e.status, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Student requireStudent(int id) {
+        Student student = manager.findStudentById(id);
+        if (student == null) {
+            throw new Failure(404, "Student with ID " + id + " not found");
+        }
+        return student;
+    }
+
+    private static void writeStudent(StringBuilder json, Student s, boolean withGrades) {
+        json.append("{\"id\":").append(s.getId()).append(",\"name\":");
+        Json.quote(json, s.getName());
+        json.append(",\"gradeCount\":").append(s.getGradeCount());
+        if (s.getGradeCount() > 0) {
+            json.append(",\"average\":");
+            Json.number(json, s.getAverageGrade());
+            json.append(",\"highest\":");
+            Json.number(json, s.getHighestGrade());
+            json.append(",\"lowest\":");
+            Json.number(json, s.getLowestGrade());
+            json.append(",\"letter\":\"").append(s.getLetterGrade()).append('"');
+        }
+        if (withGrades) {
+            json.append(",\"grades\":[");
+            for (int i = 0; i < s.getGradeCount(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                Json.number(json, s.getGrade(i));
+            }
+            json.append(']');
+        }
+        json.append('}');
+    }
+
+    private static void writeSummary(StringBuilder json, ClassSummary summary) {
+        json.append("{\"studentCount\":").append(summary.getStudentCount())
+                .append(",\"gradeCount\":").append(summary.getGradeCount());
+        if (summary.getStudentCount() > 0) {
+            json.append(",\"classAverage\":");
+            Json.number(json, summary.getClassAverage());
+            json.append(",\"classHighest\":");
+            Json.number(json, summary.getClassHighest());
+            json.append(",\"classLowest\":");
+            Json.number(json, summary.getClassLowest());
+            json.append(",\"median\":");
+            Json.number(json, summary.getMedianGrade());
+            json.append(",\"standardDeviation\":");
+            Json.number(json, summary.getStandardDeviation());
+        }
+        long[] letters = summary.getLetterCounts();
+        json.append(",\"letterCounts\":{\"A\":").append(letters[0]).append(",\"B\":").append(letters[1])
+                .append(",\"C\":").append(letters[2]).append(",\"D\":").append(letters[3])
+                .append(",\"F\":").append(letters[4]).append('}');
+        json.append(",\"top\":");
+        writeRanked(json, summary.getTopStudent(), summary.getTopAverage());
+        json.append(",\"bottom\":");
+        writeRanked(json, summary.getBottomStudent(), summary.getBottomAverage());
+        json.append('}');
+    }
+
+    private static void writeDelta(StringBuilder json, SummaryFeed.Delta delta) {
+        json.append("{\"version\":").append(delta.getVersion())
+                .append(",\"initial\":").append(delta.isInitial())
+                .append(",\"averageChanged\":").append(delta.isAverageChanged())
+                .append(",\"highestChanged\":").append(delta.isHighestChanged())
+                .append(",\"lowestChanged\":").append(delta.isLowestChanged())
+                .append(",\"topChanged\":").append(delta.isTopChanged())
+                .append(",\"bottomChanged\":").append(delta.isBottomChanged());
+        long[] changes = delta.getLetterChanges();
+        json.append(",\"letterChanges\":{\"A\":").append(changes[0]).append(",\"B\":").append(changes[1])
+                .append(",\"C\":").append(changes[2]).append(",\"D\":").append(changes[3])
+                .append(",\"F\":").append(changes[4]).append('}');
+        json.append(",\"summary\":");
+        writeSummary(json, delta.getSummary());
+        json.append('}');
+    }
+
+    private static void writeRanked(StringBuilder json, Student s, double average) {
+        if (s == null) {
+            json.append("null");
+            return;
+        }
+        json.append("{\"id\":").append(s.getId()).append(",\"name\":");
+        Json.quote(json, s.getName());
+        json.append(",\"average\":");
+        Json.number(json, average);
+        json.append('}');
+    }
+
+    private static Object readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        byte[] body = in.readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY) {
+            throw new Failure(413, "Request body is larger than " + MAX_BODY + " bytes");
+        }
+        return Json.parse(new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, StringBuilder json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        Json.quote(json, message == null ? "Bad request" : message);
+        send(exchange, status, json.append('}'));
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new Failure(405, "Use " + expected);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static List<?> asList(Object value, String what) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Field '" + what + "' must be an array");
+        }
+        return (List<?>) value;
+    }
+
+    private static int intField(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Field '" + key + "' must be a number");
+        }
+        double d = (Double) value;
+        if (d != (int) d) {
+            throw new IllegalArgumentException("Field '" + key + "' must be an integer");
+        }
+        return (int) d;
+    }
+
+    private static double gradeValue(Object value) {
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Grade must be a number");
+        }
+        double grade = (Double) value;
+        Student.checkGrade(grade);
+        return grade;
+    }
+
+    private static int pathId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new Failure(404, "Invalid student ID: " + segment);
+        }
+    }
+
+    /**
+     * Use a virtual thread per request when the runtime supports it,
+     * otherwise a fixed pool of daemon workers
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return daemonPool("grade-server-", Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        }
+    }
+
+    /**
+     * A pool of daemon threads
+     * @param prefix Thread name prefix
+     * @param threads Fixed number of threads, or 0 for threads on demand
+     */
+    private static ExecutorService daemonPool(String prefix, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return threads > 0 ? Executors.newFixedThreadPool(threads, factory) : Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Writes each delta of the feed to an open response as a server-sent
+     * event, one at a time; a failed write ends the subscription
+     */
+    private static final class EventStream implements Flow.Subscriber<SummaryFeed.Delta> {
+        private final HttpExchange exchange;
+        private final AtomicInteger openStreams;
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private Flow.Subscription subscription;
+
+        EventStream(HttpExchange exchange, AtomicInteger openStreams) {
+            this.exchange = exchange;
+            this.openStreams = openStreams;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(SummaryFeed.Delta delta) {
+            StringBuilder event = new StringBuilder(768).append("data: ");
+            writeDelta(event, delta);
+            event.append("\n\n");
+            try {
+                OutputStream out = exchange.getResponseBody();
+                out.write(event.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                // The client went away
+                subscription.cancel();
+                end();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end();
+        }
+
+        @Override
+        public void onComplete() {
+            end();
+        }
+
+        private void end() {
+            if (ended.compareAndSet(false, true)) {
+                openStreams.decrementAndGet();
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * A request failure with its HTTP status
+     */
+    private static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        Failure(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
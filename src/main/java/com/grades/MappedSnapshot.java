@@ -0,0 +1,266 @@
+package com.grades;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-layout binary snapshot of a GradeManager, read through FileChannel.map.
+ * Opening a snapshot maps the file, indexes the student IDs and fills the
+ * statistic columns and class histogram from the table, so class
+ * statistics, rankings and read snapshots are served without building any
+ * Student. A Student object is built the first time it is looked up,
+ * returned or iterated, so a roster of any size is queryable almost
+ * immediately.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header    magic, version, studentCount, tableChecksum (4 ints),
+ *           namesOffset, gradesOffset (2 longs)
+ * table     one 48-byte entry per student, in roster order:
+ *           id, nameOffset, nameLength, gradeCount (ints), firstGrade (long),
+ *           average, highest, lowest (doubles)
+ * histogram count of every GradeHistogram bucket (ints)
+ * names     UTF-8 bytes of every name
+ * grades    8-byte aligned doubles of every student's grades
+ * </pre>
+ * The checksum covers the table and histogram; names and grades are read
+ * on demand and not verified at open.
+ */
+public final class MappedSnapshot {
+    private static final int MAGIC = 0x47524D53;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_SIZE = 48;
+    private static final int HISTOGRAM_SIZE = GradeHistogram.BUCKETS * 4;
+    private static final long GRADE_SEGMENT = 1L << 30;
+
+    private final int studentCount;
+    private final MappedByteBuffer table;
+    private final MappedByteBuffer names;
+    private final MappedByteBuffer[] grades;
+
+    private MappedSnapshot(int studentCount, MappedByteBuffer table, MappedByteBuffer names,
+                           MappedByteBuffer[] grades) {
+        this.studentCount = studentCount;
+        this.table = table;
+        this.names = names;
+        this.grades = grades;
+    }
+
+    /**
+     * Write every student and grade of a manager to a snapshot file and fsync it
+     * @param manager The manager to save
+     * @param file The file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GradeManager manager, Path file) throws IOException {
+        List<Student> students = manager.getAllStudents();
+        int count = students.size();
+        byte[][] encodedNames = new byte[count][];
+        long namesSize = 0;
+        for (int i = 0; i < count; i++) {
+            encodedNames[i] = students.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            namesSize += encodedNames[i].length;
+        }
+        long namesOffset = HEADER_SIZE + (long) count * ENTRY_SIZE + HISTOGRAM_SIZE;
+        long gradesOffset = (namesOffset + namesSize + 7) & ~7L;
+        if (namesSize > Integer.MAX_VALUE || namesOffset - HEADER_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Roster is too large for a snapshot");
+        }
+
+        // The checksum needs the table, so build it before writing anything
+        byte[] entries = new byte[(int) (namesOffset - HEADER_SIZE)];
+        ByteBuffer table = ByteBuffer.wrap(entries);
+        int nameOffset = 0;
+        long firstGrade = 0;
+        for (int i = 0; i < count; i++) {
+            Student s = students.get(i);
+            table.putInt(s.getId()).putInt(nameOffset).putInt(encodedNames[i].length)
+                    .putInt(s.getGradeCount()).putLong(firstGrade)
+                    .putDouble(s.getAverageGrade()).putDouble(s.getHighestGrade()).putDouble(s.getLowestGrade());
+            nameOffset += encodedNames[i].length;
+            firstGrade += s.getGradeCount();
+        }
+        GradeHistogram histogram = manager.getGradeHistogram();
+        for (int b = 0; b < GradeHistogram.BUCKETS; b++) {
+            table.putInt(histogram.getBucketCount(b));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entries);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(count);
+            out.writeInt((int) crc.getValue());
+            out.writeLong(namesOffset);
+            out.writeLong(gradesOffset);
+            out.write(entries);
+            for (byte[] name : encodedNames) {
+                out.write(name);
+            }
+            for (long pos = namesOffset + namesSize; pos < gradesOffset; pos++) {
+                out.write(0);
+            }
+            for (Student s : students) {
+                for (int i = 0; i < s.getGradeCount(); i++) {
+                    out.writeDouble(s.getGrade(i));
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Open a snapshot as a manager whose students are loaded on first use
+     * @param file The snapshot file
+     * @return A manager backed by the snapshot
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot
+     */
+    public static GradeManager open(Path file) throws IOException {
+        GradeManager manager = new GradeManager();
+        map(file).attachTo(manager);
+        return manager;
+    }
+
+    /**
+     * Map a snapshot file and check its header and table
+     */
+    static MappedSnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a grade snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a grade snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int count = header.getInt();
+            int checksum = header.getInt();
+            long namesOffset = header.getLong();
+            long gradesOffset = header.getLong();
+            long tableSize = (long) count * ENTRY_SIZE + HISTOGRAM_SIZE;
+            if (count < 0 || tableSize > Integer.MAX_VALUE || namesOffset != HEADER_SIZE + tableSize
+                    || gradesOffset < namesOffset || gradesOffset > size
+                    || gradesOffset - namesOffset > Integer.MAX_VALUE) {
+                throw new IOException("Damaged snapshot header: " + file);
+            }
+
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, tableSize);
+            CRC32 crc = new CRC32();
+            crc.update(table.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, namesOffset,
+                    gradesOffset - namesOffset);
+
+            long gradesSize = size - gradesOffset;
+            int segments = (int) ((gradesSize + GRADE_SEGMENT - 1) / GRADE_SEGMENT);
+            MappedByteBuffer[] grades = new MappedByteBuffer[segments];
+            for (int i = 0; i < segments; i++) {
+                long start = i * GRADE_SEGMENT;
+                grades[i] = channel.map(FileChannel.MapMode.READ_ONLY, gradesOffset + start,
+                        Math.min(GRADE_SEGMENT, gradesSize - start));
+            }
+            // Mappings stay valid after the channel is closed
+            return new MappedSnapshot(count, table, names, grades);
+        }
+    }
+
+    /**
+     * Make an empty manager serve this snapshot's students lazily
+     */
+    void attachTo(GradeManager manager) {
+        manager.attachSnapshot(this);
+    }
+
+    /**
+     * Get the number of students in the table
+     * @return Number of students
+     */
+    int size() {
+        return studentCount;
+    }
+
+    // Fields of the table entry at a position
+    int id(int ordinal) {
+        return table.getInt(ordinal * ENTRY_SIZE);
+    }
+
+    int gradeCount(int ordinal) {
+        return table.getInt(ordinal * ENTRY_SIZE + 12);
+    }
+
+    double average(int ordinal) {
+        return table.getDouble(ordinal * ENTRY_SIZE + 24);
+    }
+
+    double highest(int ordinal) {
+        return table.getDouble(ordinal * ENTRY_SIZE + 32);
+    }
+
+    double lowest(int ordinal) {
+        return table.getDouble(ordinal * ENTRY_SIZE + 40);
+    }
+
+    /**
+     * Read the name of the student at a position. Safe to call from any thread.
+     * @param ordinal Position in the table
+     * @return The stored name
+     */
+    String name(int ordinal) {
+        int entry = ordinal * ENTRY_SIZE;
+        byte[] name = new byte[table.getInt(entry + 8)];
+        names.get(table.getInt(entry + 4), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build the class histogram stored after the table
+     * @return A new histogram of every stored grade
+     */
+    GradeHistogram histogram() {
+        GradeHistogram histogram = new GradeHistogram();
+        int base = studentCount * ENTRY_SIZE;
+        for (int b = 0; b < GradeHistogram.BUCKETS; b++) {
+            histogram.addBucket(b, table.getInt(base + b * 4));
+        }
+        return histogram;
+    }
+
+    /**
+     * Build the student stored at a position of the table
+     * @param ordinal Position in the table
+     * @return A new student holding the stored name and grades
+     */
+    Student load(int ordinal) {
+        int gradeCount = gradeCount(ordinal);
+        long firstGrade = table.getLong(ordinal * ENTRY_SIZE + 16);
+        Student student = new Student(name(ordinal), id(ordinal));
+        for (int i = 0; i < gradeCount; i++) {
+            long pos = (firstGrade + i) * 8;
+            student.appendGrade(grades[(int) (pos / GRADE_SEGMENT)].getDouble((int) (pos % GRADE_SEGMENT)));
+        }
+        return student;
+    }
+}
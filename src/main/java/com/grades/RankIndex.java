@@ -0,0 +1,233 @@
+package com.grades;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntConsumer;
+
+/**
+ * Order-statistic tree of student IDs ranked by average grade.
+ * A treap keyed by (average descending, ID ascending) where every node
+ * knows the size of its subtree, so rank lookups are O(log N) and the
+ * K students starting at any rank are found in O(K + log N). Only IDs are
+ * held, so a ranking can be built from the statistic columns alone.
+ */
+class RankIndex {
+    private static final class Node {
+        final double average;
+        final int id;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(int id, double average, int priority) {
+            this.average = average;
+            this.id = id;
+            this.priority = priority;
+        }
+    }
+
+    private Node root;
+    private int seed = 0x2545F491;
+
+    /**
+     * Add a student under its current average
+     * @param id The student ID
+     * @param average The average the student is ranked by
+     */
+    void insert(int id, double average) {
+        root = insert(root, new Node(id, average, nextPriority()));
+    }
+
+    /**
+     * Remove a student that was ranked under the given average
+     * @param id The student ID
+     * @param average The average the student was ranked by
+     */
+    void remove(int id, double average) {
+        root = remove(root, average, id);
+    }
+
+    /**
+     * Get the 0-based position of a student, best average first
+     * @param id The student ID
+     * @param average The average the student is ranked by
+     * @return The position, or -1 if the student is not ranked
+     */
+    int rankOf(int id, double average) {
+        int rank = 0;
+        Node t = root;
+        while (t != null) {
+            int c = compare(t, average, id);
+            if (c == 0) {
+                return rank + size(t.left);
+            }
+            if (c < 0) {
+                rank += size(t.left) + 1;
+                t = t.right;
+            } else {
+                t = t.left;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visit student IDs in rank order
+     * @param offset Number of students to skip
+     * @param limit Maximum number of students to visit
+     * @param lowestFirst true to walk from the lowest average upwards
+     * @param action Action run for each student ID
+     */
+    void forEach(int offset, int limit, boolean lowestFirst, IntConsumer action) {
+        if (offset < 0 || limit <= 0) {
+            return;
+        }
+        Deque<Node> path = new ArrayDeque<>();
+        Node t = root;
+        int skip = offset;
+        // Descend to the node at position offset, remembering the
+        // ancestors that come after it in walk order
+        while (t != null) {
+            int before = size(first(t, lowestFirst));
+            if (skip < before) {
+                path.push(t);
+                t = first(t, lowestFirst);
+            } else if (skip == before) {
+                path.push(t);
+                break;
+            } else {
+                skip -= before + 1;
+                t = second(t, lowestFirst);
+            }
+        }
+        int added = 0;
+        while (!path.isEmpty() && added < limit) {
+            Node n = path.pop();
+            action.accept(n.id);
+            added++;
+            for (Node c = second(n, lowestFirst); c != null; c = first(c, lowestFirst)) {
+                path.push(c);
+            }
+        }
+    }
+
+    /**
+     * Get the number of ranked students
+     * @return Number of students
+     */
+    int size() {
+        return size(root);
+    }
+
+    private Node insert(Node t, Node n) {
+        if (t == null) {
+            return n;
+        }
+        if (n.priority > t.priority) {
+            Node[] parts = new Node[2];
+            split(t, n.average, n.id, parts);
+            n.left = parts[0];
+            n.right = parts[1];
+            update(n);
+            return n;
+        }
+        if (compare(t, n.average, n.id) < 0) {
+            t.right = insert(t.right, n);
+        } else {
+            t.left = insert(t.left, n);
+        }
+        update(t);
+        return t;
+    }
+
+    private Node remove(Node t, double average, int id) {
+        if (t == null) {
+            return null;
+        }
+        int c = compare(t, average, id);
+        if (c == 0) {
+            return merge(t.left, t.right);
+        }
+        if (c < 0) {
+            t.right = remove(t.right, average, id);
+        } else {
+            t.left = remove(t.left, average, id);
+        }
+        update(t);
+        return t;
+    }
+
+    /**
+     * Split t into nodes ranked before the key and nodes ranked after it
+     */
+    private void split(Node t, double average, int id, Node[] parts) {
+        if (t == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        if (compare(t, average, id) < 0) {
+            split(t.right, average, id, parts);
+            t.right = parts[0];
+            update(t);
+            parts[0] = t;
+        } else {
+            split(t.left, average, id, parts);
+            t.left = parts[1];
+            update(t);
+            parts[1] = t;
+        }
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    /**
+     * Compare a node with a key
+     * @return Negative if the node ranks before the key, 0 if it is the key
+     */
+    private static int compare(Node t, double average, int id) {
+        int c = Double.compare(average, t.average);
+        return c != 0 ? c : Integer.compare(t.id, id);
+    }
+
+    private static Node first(Node t, boolean lowestFirst) {
+        return lowestFirst ? t.right : t.left;
+    }
+
+    private static Node second(Node t, boolean lowestFirst) {
+        return lowestFirst ? t.left : t.right;
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static void update(Node t) {
+        t.size = 1 + size(t.left) + size(t.right);
+    }
+
+    private int nextPriority() {
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+}
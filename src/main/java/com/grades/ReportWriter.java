@@ -0,0 +1,365 @@
+package com.grades;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Streams the student table and class summary to a large buffered writer.
+ * Rows are built with hand-rolled fixed-width formatting instead of a
+ * Formatter per row, and students are visited in place rather than copied,
+ * so printing a large roster costs a handful of writes.
+ */
+public class ReportWriter implements Closeable, Flushable {
+    /** Size of the output buffer in characters */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Order of the rows in the student table
+     */
+    public enum SortOrder {
+        /** Order in which students were added */
+        INSERTION,
+        /** Ascending student ID */
+        ID,
+        /** Name, ignoring case */
+        NAME,
+        /** Highest average first */
+        AVERAGE_DESC,
+        /** Lowest average first */
+        AVERAGE_ASC
+    }
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final Writer out;
+    private final boolean closeTarget;
+    private final StringBuilder row = new StringBuilder(128);
+
+    /**
+     * Constructor for a report writer on any character stream
+     * @param target Where the report is written; it is buffered here
+     */
+    public ReportWriter(Writer target) {
+        this(target, true);
+    }
+
+    private ReportWriter(Writer target, boolean closeTarget) {
+        this.out = target instanceof BufferedWriter ? target : new BufferedWriter(target, BUFFER_SIZE);
+        this.closeTarget = closeTarget;
+    }
+
+    /**
+     * Create a writer on standard output. Closing it only flushes, so
+     * System.out stays usable.
+     * @return A report writer for the console
+     */
+    public static ReportWriter toStdout() {
+        return new ReportWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), false);
+    }
+
+    /**
+     * Create a writer on a file, replacing it if it exists
+     * @param file The file to write
+     * @return A report writer for the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ReportWriter toFile(Path file) throws IOException {
+        return new ReportWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write every student in insertion order
+     * @param manager The manager holding the students
+     * @throws IOException if the report cannot be written
+     */
+    public void writeStudentTable(GradeManager manager) throws IOException {
+        writeStudentTable(manager, SortOrder.INSERTION, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Write one page of the student table. Insertion and average orders
+     * are streamed in place; ID and name orders sort an array of references.
+     * @param manager The manager holding the students
+     * @param order Order of the rows
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to write
+     * @throws IOException if the report cannot be written
+     */
+    public void writeStudentTable(GradeManager manager, SortOrder order, int offset, int limit) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        line("--- All Students ---");
+        if (manager.getStudentCount() == 0) {
+            line("No students in the system.");
+            return;
+        }
+        line("┌────────────────────────────────────────────────────────────────────┐");
+        line("│ ID   │ Name               │ Avg    │ High  │ Low   │ Grade │ Count │");
+        line("├────────────────────────────────────────────────────────────────────┤");
+        try {
+            switch (order) {
+                case AVERAGE_DESC:
+                    manager.forEachRanked(offset, limit, false, this::studentRow);
+                    break;
+                case AVERAGE_ASC:
+                    manager.forEachRanked(offset, limit, true, this::studentRow);
+                    break;
+                case ID:
+                case NAME:
+                    List<Student> sorted = new ArrayList<>(manager.getStudentCount());
+                    manager.forEachStudent(sorted::add);
+                    sorted.sort(order == SortOrder.ID
+                            ? Comparator.comparingInt(Student::getId)
+                            : Comparator.comparing(Student::getName, String.CASE_INSENSITIVE_ORDER)
+                                    .thenComparingInt(Student::getId));
+                    long end = Math.min(sorted.size(), (long) offset + limit);
+                    for (int i = offset; i < end; i++) {
+                        studentRow(sorted.get(i));
+                    }
+                    break;
+                default:
+                    int[] position = {0};
+                    long stop = (long) offset + limit;
+                    manager.forEachStudent(s -> {
+                        int p = position[0]++;
+                        if (p >= offset && p < stop) {
+                            studentRow(s);
+                        }
+                    });
+                    break;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        line("└────────────────────────────────────────────────────────────────────┘");
+    }
+
+    /**
+     * Write every student of a snapshot in insertion order
+     * @param snapshot The roster snapshot
+     * @throws IOException if the report cannot be written
+     */
+    public void writeStudentTable(RosterSnapshot snapshot) throws IOException {
+        writeStudentTable(snapshot, SortOrder.INSERTION, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Write one page of the student table from a snapshot. Orders other
+     * than insertion sort the snapshot's rows on the calling thread.
+     * @param snapshot The roster snapshot
+     * @param order Order of the rows
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to write
+     * @throws IOException if the report cannot be written
+     */
+    public void writeStudentTable(RosterSnapshot snapshot, SortOrder order, int offset, int limit)
+            throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        line("--- All Students ---");
+        if (snapshot.getStudentCount() == 0) {
+            line("No students in the system.");
+            return;
+        }
+        line("┌────────────────────────────────────────────────────────────────────┐");
+        line("│ ID   │ Name               │ Avg    │ High  │ Low   │ Grade │ Count │");
+        line("├────────────────────────────────────────────────────────────────────┤");
+        try {
+            snapshot.forEachStudent(order, offset, limit, this::studentRow);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        line("└────────────────────────────────────────────────────────────────────┘");
+    }
+
+    /**
+     * Write the boxed class summary report
+     * @param summary The class statistics to print
+     * @throws IOException if the report cannot be written
+     */
+    public void writeSummary(ClassSummary summary) throws IOException {
+        line("╔═ CLASS SUMMARY REPORT ═════════════════════╗");
+        if (summary.getStudentCount() == 0) {
+            line("║ No students in the system.                 ║");
+            line("╚════════════════════════════════════════════╝");
+            return;
+        }
+        boxed("║ Total Students: ", Integer.toString(summary.getStudentCount()), 27);
+        line("╟────────────────────────────────────────────╢");
+        line("║ CLASS STATISTICS:                          ║");
+        boxedFixed("║ ├─ Class Average: ", summary.getClassAverage(), 2, 24);
+        boxedFixed("║ ├─ Highest Grade: ", summary.getClassHighest(), 1, 24);
+        boxedFixed("║ ├─ Lowest Grade: ", summary.getClassLowest(), 1, 25);
+        boxedFixed("║ ├─ Median Grade: ", summary.getMedianGrade(), 1, 25);
+        boxedFixed("║ ├─ Std Deviation: ", summary.getStandardDeviation(), 2, 24);
+        long[] letters = summary.getLetterCounts();
+        boxed("║ └─ Grades: ", "A " + letters[0] + "  B " + letters[1] + "  C " + letters[2]
+                + "  D " + letters[3] + "  F " + letters[4], 31);
+        line("╟────────────────────────────────────────────╢");
+
+        Student top = summary.getTopStudent();
+        if (top != null) {
+            line("║ TOP PERFORMER:                             ║");
+            boxed("║ ├─ Name: ", top.getName(), 32);
+            boxed("║ ├─ ID: ", Integer.toString(top.getId()), 34);
+            boxedFixed("║ └─ Average: ", summary.getTopAverage(), 2, 30);
+        }
+        line("╟────────────────────────────────────────────╢");
+        Student bottom = summary.getBottomStudent();
+        if (bottom != null) {
+            line("║ NEEDS IMPROVEMENT:                         ║");
+            boxed("║ ├─ Name: ", bottom.getName(), 32);
+            boxed("║ ├─ ID: ", Integer.toString(bottom.getId()), 34);
+            boxedFixed("║ └─ Average: ", summary.getBottomAverage(), 2, 30);
+        }
+        line("╚════════════════════════════════════════════╝");
+    }
+
+    /**
+     * Write a line of text
+     * @param text The text, without a line separator
+     * @throws IOException if the line cannot be written
+     */
+    public void line(String text) throws IOException {
+        out.write(text);
+        out.write(NEWLINE);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeTarget) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    private void studentRow(Student s) {
+        studentRow(s.getId(), s.getName(), s.getGradeCount(), s.getAverageGrade(),
+                s.getHighestGrade(), s.getLowestGrade());
+    }
+
+    private void studentRow(int id, String name, int gradeCount, double average, double highest, double lowest) {
+        row.setLength(0);
+        row.append("│ ");
+        padRight(row, Integer.toString(id), 4);
+        row.append(" │ ");
+        padRight(row, name, 18);
+        row.append(" │ ");
+        fixed(row, average, 2, 6);
+        row.append(" │ ");
+        fixed(row, highest, 1, 5);
+        row.append(" │ ");
+        fixed(row, lowest, 1, 5);
+        row.append(" │ ");
+        padLeft(row, String.valueOf(Student.letterGrade(average)), 5);
+        row.append(" │ ");
+        padLeft(row, Integer.toString(gradeCount), 5);
+        row.append(" │").append(NEWLINE);
+        try {
+            out.append(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void boxed(String label, String value, int width) throws IOException {
+        row.setLength(0);
+        row.append(label);
+        padRight(row, value, width);
+        row.append('║');
+        line(row.toString());
+    }
+
+    private void boxedFixed(String label, double value, int decimals, int width) throws IOException {
+        row.setLength(0);
+        row.append(label);
+        int start = row.length();
+        fixed(row, value, decimals, 0);
+        for (int n = row.length() - start; n < width; n++) {
+            row.append(' ');
+        }
+        row.append('║');
+        line(row.toString());
+    }
+
+    private static void padRight(StringBuilder sb, String s, int width) {
+        sb.append(s);
+        for (int n = s.length(); n < width; n++) {
+            sb.append(' ');
+        }
+    }
+
+    private static void padLeft(StringBuilder sb, String s, int width) {
+        for (int n = s.length(); n < width; n++) {
+            sb.append(' ');
+        }
+        sb.append(s);
+    }
+
+    /**
+     * Append a value with a fixed number of decimals (1 or 2), right-aligned
+     * in width characters, exactly as %.Nf prints it. Formatter rounds half
+     * up on the shortest decimal that identifies the double (the digits of
+     * Double.toString), so 1.005 prints as 1.01 although the double is a
+     * little below it. Values near such a tie are rounded the same way; all
+     * others round directly.
+     */
+    static void fixed(StringBuilder sb, double value, int decimals, int width) {
+        long scale = decimals == 1 ? 10 : 100;
+        double product = Math.abs(value) * scale;
+        long scaled;
+        if (Math.abs(product - Math.floor(product) - 0.5) < 1e-6) {
+            scaled = BigDecimal.valueOf(Math.abs(value)).setScale(decimals, RoundingMode.HALF_UP)
+                    .unscaledValue().longValue();
+        } else {
+            scaled = Math.round(product);
+        }
+        // Like Formatter, a negative value keeps its sign even when it rounds to zero
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+        long whole = scaled / scale;
+        long fraction = scaled % scale;
+        int length = (negative ? 1 : 0) + digits(whole) + 1 + decimals;
+        for (int n = length; n < width; n++) {
+            sb.append(' ');
+        }
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(whole).append('.');
+        if (decimals == 2 && fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    private static int digits(long v) {
+        int n = 1;
+        while (v >= 10) {
+            v /= 10;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,325 @@
+package com.grades;
+
+import java.util.Arrays;
+
+/**
+ * Immutable point-in-time view of a GradeManager, taken with
+ * GradeManager.snapshot(). Taking one is O(1): it shares the manager's
+ * statistic columns and student slots, and the manager copies a page of
+ * either before changing anything a snapshot can still see.
+ * A snapshot can be read from any thread while the manager keeps changing,
+ * so long reports never hold up writers. Its memory is reclaimed by the
+ * garbage collector once the last reader drops it.
+ *
+ * Each row holds a student's ID, name, grade count, average, highest and
+ * lowest grade as they were when the snapshot was taken. The slots of the
+ * sorted orders are sorted once per snapshot, on first use, and every
+ * page is a slice of that order.
+ */
+public final class RosterSnapshot {
+    /**
+     * Receives the rows of a snapshot
+     */
+    public interface RowVisitor {
+        /**
+         * Called for one student
+         * @param id The student's ID
+         * @param name The student's name
+         * @param gradeCount Number of grades
+         * @param average Average grade, or 0 if no grades exist
+         * @param highest Highest grade, or 0 if no grades exist
+         * @param lowest Lowest grade, or 0 if no grades exist
+         */
+        void visit(int id, String name, int gradeCount, double average, double highest, double lowest);
+    }
+
+    private final long version;
+    private final int studentCount;
+    private final int slotCount;
+    // Frozen view of the manager's slots; only the immutable ID and name
+    // of these students are read
+    private final StudentSlots students;
+    // Names of the slots whose students were still only in a mapped
+    // snapshot, or null
+    private final MappedSnapshot unloadedNames;
+    private final StudentColumns columns;
+    private final GradeHistogram distribution;
+    private volatile StatsAccumulator stats;
+    private volatile ClassSummary summary;
+    // Non-empty slots in each sorted order, built on first use; the
+    // ascending average order is the descending one read backwards
+    private volatile int[] idOrder;
+    private volatile int[] nameOrder;
+    private volatile int[] averageOrder;
+
+    /**
+     * Constructor for a snapshot over frozen state
+     * @param version The manager's version at the time
+     * @param studentCount Number of students
+     * @param slotCount Number of slots in use, including holes
+     * @param students Frozen student of each slot, null for holes
+     * @param columns Frozen statistic columns
+     * @param distribution Copy of the class histogram
+     * @param summary The manager's summary if it was current, or null
+     * @param unloadedNames Mapped snapshot holding the students of empty
+     *        slots with statistics, or null if every student is built
+     */
+    RosterSnapshot(long version, int studentCount, int slotCount, StudentSlots students, StudentColumns columns,
+                   GradeHistogram distribution, ClassSummary summary, MappedSnapshot unloadedNames) {
+        this.version = version;
+        this.studentCount = studentCount;
+        this.slotCount = slotCount;
+        this.students = students;
+        this.unloadedNames = unloadedNames;
+        this.columns = columns;
+        this.distribution = distribution;
+        this.summary = summary;
+    }
+
+    /**
+     * Get the manager version the snapshot was taken at
+     * @return The modification version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of students
+     * @return Number of students
+     */
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    /**
+     * Get the distribution of every grade in the class
+     * @return Histogram of all grades
+     */
+    public GradeHistogram getGradeHistogram() {
+        return distribution;
+    }
+
+    /**
+     * Get the class-wide statistics, computed on the calling thread the
+     * first time they are asked for
+     * @return The class summary
+     */
+    public ClassSummary getClassSummary() {
+        ClassSummary result = summary;
+        if (result == null) {
+            StatsAccumulator stats = getStats();
+            if (stats.getCount() == 0) {
+                result = new ClassSummary(0, 0.0, 0.0, 0.0, null, 0.0, null, 0.0, distribution);
+            } else {
+                result = new ClassSummary(studentCount, stats.getMean(), stats.getHighest(), stats.getLowest(),
+                        students.get(stats.getTopSlot()), stats.getTopAverage(),
+                        students.get(stats.getBottomSlot()), stats.getBottomAverage(), distribution);
+            }
+            summary = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the scan of the statistic columns, computed on the calling
+     * thread the first time it is asked for
+     * @return Statistics of every student, by slot
+     */
+    StatsAccumulator getStats() {
+        StatsAccumulator result = stats;
+        if (result == null) {
+            result = columns.scan(slotCount);
+            stats = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the student in a slot
+     * @param slot The slot
+     * @return The student, or null for a hole or a student not yet built
+     *         from a mapped snapshot
+     */
+    Student studentAt(int slot) {
+        return students.get(slot);
+    }
+
+    /**
+     * Visit every student in insertion order
+     * @param visitor Receives each row
+     */
+    public void forEachStudent(RowVisitor visitor) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (columns.count(slot) != StudentColumns.EMPTY) {
+                visit(slot, visitor);
+            }
+        }
+    }
+
+    /**
+     * Visit one page of students in a given order. Equal averages are
+     * ordered by ID, as in GradeManager's ranking.
+     * @param order Order of the rows
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to visit
+     * @param visitor Receives each row
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    public void forEachStudent(ReportWriter.SortOrder order, int offset, int limit, RowVisitor visitor) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        long end = Math.min(studentCount, (long) offset + limit);
+        if (order == ReportWriter.SortOrder.INSERTION) {
+            int position = 0;
+            for (int slot = 0; slot < slotCount && position < end; slot++) {
+                if (columns.count(slot) != StudentColumns.EMPTY) {
+                    if (position++ >= offset) {
+                        visit(slot, visitor);
+                    }
+                }
+            }
+            return;
+        }
+        int[] slots = sortedSlots(order);
+        if (order == ReportWriter.SortOrder.AVERAGE_ASC) {
+            for (int i = offset; i < end; i++) {
+                visit(slots[studentCount - 1 - i], visitor);
+            }
+        } else {
+            for (int i = offset; i < end; i++) {
+                visit(slots[i], visitor);
+            }
+        }
+    }
+
+    /**
+     * Get the non-empty slots in a sorted order, sorting them the first
+     * time. AVERAGE_ASC gives the AVERAGE_DESC order, to be read backwards.
+     */
+    private int[] sortedSlots(ReportWriter.SortOrder order) {
+        switch (order) {
+            case ID: {
+                int[] slots = idOrder;
+                if (slots == null) {
+                    // ID in the high half and slot in the low half of one
+                    // key, so a primitive sort orders the slots by ID
+                    long[] keys = new long[studentCount];
+                    int n = 0;
+                    for (int slot = 0; slot < slotCount; slot++) {
+                        if (columns.count(slot) != StudentColumns.EMPTY) {
+                            keys[n++] = ((long) columns.id(slot) << 32) | slot;
+                        }
+                    }
+                    Arrays.sort(keys);
+                    slots = new int[studentCount];
+                    for (int i = 0; i < studentCount; i++) {
+                        slots[i] = (int) keys[i];
+                    }
+                    idOrder = slots;
+                }
+                return slots;
+            }
+            case NAME: {
+                int[] slots = nameOrder;
+                if (slots == null) {
+                    String[] names = new String[slotCount];
+                    slots = occupiedSlots();
+                    for (int slot : slots) {
+                        names[slot] = nameAt(slot);
+                    }
+                    sort(slots, (a, b) -> {
+                        int c = String.CASE_INSENSITIVE_ORDER.compare(names[a], names[b]);
+                        return c != 0 ? c : Integer.compare(columns.id(a), columns.id(b));
+                    });
+                    nameOrder = slots;
+                }
+                return slots;
+            }
+            default: {
+                int[] slots = averageOrder;
+                if (slots == null) {
+                    slots = occupiedSlots();
+                    // Highest average first, equal averages by ID
+                    sort(slots, (a, b) -> {
+                        int c = Double.compare(columns.average(b), columns.average(a));
+                        return c != 0 ? c : Integer.compare(columns.id(a), columns.id(b));
+                    });
+                    averageOrder = slots;
+                }
+                return slots;
+            }
+        }
+    }
+
+    private int[] occupiedSlots() {
+        int[] slots = new int[studentCount];
+        int n = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (columns.count(slot) != StudentColumns.EMPTY) {
+                slots[n++] = slot;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Compares two slots
+     */
+    private interface SlotComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Merge sort of slots without boxing them
+     */
+    private static void sort(int[] slots, SlotComparator comparator) {
+        mergeSort(slots.clone(), slots, 0, slots.length, comparator);
+    }
+
+    /**
+     * Sort dst[from, to), which src holds the same slots as, using src as
+     * scratch space
+     */
+    private static void mergeSort(int[] src, int[] dst, int from, int to, SlotComparator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int slot = dst[i];
+                int j = i;
+                while (j > from && comparator.compare(dst[j - 1], slot) > 0) {
+                    dst[j] = dst[j - 1];
+                    j--;
+                }
+                dst[j] = slot;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, comparator);
+        mergeSort(dst, src, mid, to, comparator);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && comparator.compare(src[left], src[right]) <= 0)) {
+                dst[i] = src[left++];
+            } else {
+                dst[i] = src[right++];
+            }
+        }
+    }
+
+    private void visit(int slot, RowVisitor visitor) {
+        visitor.visit(columns.id(slot), nameAt(slot), columns.count(slot),
+                columns.average(slot), columns.highest(slot), columns.lowest(slot));
+    }
+
+    /**
+     * Get the name of the student in a non-empty slot
+     */
+    private String nameAt(int slot) {
+        Student s = students.get(slot);
+        // Slots of a mapped snapshot line up with its table until every student is built
+        return s != null ? s.getName() : unloadedNames.name(slot);
+    }
+}
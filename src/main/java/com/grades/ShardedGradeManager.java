@@ -0,0 +1,476 @@
+package com.grades;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Manager that splits students across independent GradeManager shards, by
+ * section or by a hash of the student ID. Each shard has its own lock, so
+ * threads working on different shards never contend, and a thread can
+ * drive one shard through withShard with a single lock acquisition.
+ *
+ * Class-wide queries merge per-shard results instead of rescanning every
+ * student: the statistics and histogram of each shard are kept along with
+ * the shard version they were computed at, and only shards whose version
+ * moved are scanned again. The merged summary is cached until any shard
+ * changes. Each shard is read at its own point in time. The averages are
+ * merged with the same compensated sum as the parallel scan of a single
+ * manager, and, as in GradeManager, the student added first wins when
+ * best or worst averages are equal.
+ *
+ * Students held here must receive grades through this class or withShard;
+ * calling Student.addGrade directly bypasses the shard locks.
+ */
+public class ShardedGradeManager {
+    private final GradeManager[] shards;
+    // One private lock per shard; the shards themselves are handed out by withShard
+    private final Object[] locks;
+    // Order in which each shard's students were added, guarded by the shard
+    // lock, so ties between shards follow the order of addition
+    private final AddOrder[] addOrders;
+    private final IntUnaryOperator sectionOf;
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Statistics of every shard and the summary merged from them
+    private volatile Merged merged;
+
+    /**
+     * Constructor for a manager spreading students over shards by ID hash
+     * @param shardCount Number of shards, usually the number of writer threads
+     * @throws IllegalArgumentException if shardCount is less than 1
+     */
+    public ShardedGradeManager(int shardCount) {
+        this(shardCount, null);
+    }
+
+    /**
+     * Constructor for a manager keeping each section's students together.
+     * Section s is held by shard s modulo shardCount.
+     * @param shardCount Number of shards
+     * @param sectionOf Gives the section of a student ID, or null to
+     *        spread students by ID hash
+     * @throws IllegalArgumentException if shardCount is less than 1
+     */
+    public ShardedGradeManager(int shardCount, IntUnaryOperator sectionOf) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.shards = new GradeManager[shardCount];
+        this.locks = new Object[shardCount];
+        this.addOrders = new AddOrder[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            AddOrder order = new AddOrder();
+            // Also sees students added through withShard
+            GradeListener recorder = new GradeListener() {
+                @Override
+                public void studentAdded(Student student) {
+                    order.put(student.getId(), nextSequence.getAndIncrement());
+                }
+
+                @Override
+                public void gradeAdded(Student student, double grade) {
+                }
+
+                @Override
+                public void studentRemoved(Student student) {
+                    order.remove(student.getId());
+                }
+            };
+            shards[i] = new GradeManager();
+            shards[i].addListener(recorder);
+            locks[i] = new Object();
+            addOrders[i] = order;
+        }
+        this.sectionOf = sectionOf;
+    }
+
+    /**
+     * Get the number of shards
+     * @return Number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Get the shard that holds a student ID
+     * @param studentId The ID
+     * @return Shard index between 0 and getShardCount() - 1
+     */
+    public int shardOf(int studentId) {
+        if (sectionOf != null) {
+            return Math.floorMod(sectionOf.applyAsInt(studentId), shards.length);
+        }
+        // High bits of the hash, as each shard's index uses the low ones
+        return (int) ((Integer.toUnsignedLong(StudentIndex.mix(studentId)) * shards.length) >>> 32);
+    }
+
+    /**
+     * Run an action on one shard while holding its lock. The action must
+     * only touch students of that shard.
+     * @param shard The shard index
+     * @param action Receives the shard's manager
+     * @throws IndexOutOfBoundsException if shard is out of range
+     */
+    public void withShard(int shard, Consumer<GradeManager> action) {
+        Objects.checkIndex(shard, shards.length);
+        synchronized (locks[shard]) {
+            action.accept(shards[shard]);
+        }
+    }
+
+    /**
+     * Add a new student to its shard
+     * @param student The student to add
+     * @throws IllegalArgumentException if student ID already exists
+     *         or the student belongs to another manager
+     */
+    public void addStudent(Student student) {
+        int shard = shardOf(student.getId());
+        synchronized (locks[shard]) {
+            shards[shard].addStudent(student);
+        }
+    }
+
+    /**
+     * Remove a student by ID
+     * @param studentId The ID of the student to remove
+     * @return true if student was removed, false if not found
+     */
+    public boolean removeStudent(int studentId) {
+        int shard = shardOf(studentId);
+        synchronized (locks[shard]) {
+            return shards[shard].removeStudent(studentId);
+        }
+    }
+
+    /**
+     * Find a student by ID
+     * @param studentId The ID to search for
+     * @return The student, or null if not found
+     */
+    public Student findStudentById(int studentId) {
+        int shard = shardOf(studentId);
+        synchronized (locks[shard]) {
+            return shards[shard].findStudentById(studentId);
+        }
+    }
+
+    /**
+     * Add a grade to a student by ID. Only the student's shard is locked.
+     * @param studentId The ID of the student
+     * @param grade The grade to add (0-100)
+     * @return true if the grade was added, false if the student was not found
+     * @throws IllegalArgumentException if grade is invalid
+     */
+    public boolean addGrade(int studentId, double grade) {
+        int shard = shardOf(studentId);
+        synchronized (locks[shard]) {
+            return shards[shard].addGrade(studentId, grade);
+        }
+    }
+
+    /**
+     * Add many grades at once, as GradeManager.addGrades does. Rows are
+     * grouped by shard and each shard is locked once.
+     * @param ids Student ID of each row
+     * @param grades Grade of each row
+     * @return Outcome of each row: GradeManager.GRADE_ADDED,
+     *         GradeManager.UNKNOWN_STUDENT or GradeManager.INVALID_GRADE
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public byte[] addGrades(int[] ids, double[] grades) {
+        if (ids.length != grades.length) {
+            throw new IllegalArgumentException("Got " + ids.length + " IDs but " + grades.length + " grades");
+        }
+        int n = ids.length;
+        int shardCount = shards.length;
+        // Counting sort of the rows by shard, keeping their order
+        int[] shardOfRow = new int[n];
+        int[] start = new int[shardCount + 1];
+        for (int i = 0; i < n; i++) {
+            shardOfRow[i] = shardOf(ids[i]);
+            start[shardOfRow[i] + 1]++;
+        }
+        for (int s = 0; s < shardCount; s++) {
+            start[s + 1] += start[s];
+        }
+        int[] rows = new int[n];
+        int[] next = start.clone();
+        for (int i = 0; i < n; i++) {
+            rows[next[shardOfRow[i]]++] = i;
+        }
+
+        byte[] codes = new byte[n];
+        for (int s = 0; s < shardCount; s++) {
+            int size = start[s + 1] - start[s];
+            if (size == 0) {
+                continue;
+            }
+            int[] shardIds = new int[size];
+            double[] shardGrades = new double[size];
+            for (int j = 0; j < size; j++) {
+                int row = rows[start[s] + j];
+                shardIds[j] = ids[row];
+                shardGrades[j] = grades[row];
+            }
+            byte[] shardCodes;
+            synchronized (locks[s]) {
+                shardCodes = shards[s].addGrades(shardIds, shardGrades);
+            }
+            for (int j = 0; j < size; j++) {
+                codes[rows[start[s] + j]] = shardCodes[j];
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Perform an action for each student, one shard at a time
+     * @param action The action to perform
+     */
+    public void forEachStudent(Consumer<Student> action) {
+        for (int s = 0; s < shards.length; s++) {
+            synchronized (locks[s]) {
+                shards[s].forEachStudent(action);
+            }
+        }
+    }
+
+    /**
+     * Get the number of students
+     * @return Number of students
+     */
+    public int getStudentCount() {
+        int count = 0;
+        for (int s = 0; s < shards.length; s++) {
+            synchronized (locks[s]) {
+                count += shards[s].getStudentCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of grades across all students
+     * @return Number of grades
+     */
+    public long getTotalGradeCount() {
+        long count = 0;
+        for (int s = 0; s < shards.length; s++) {
+            synchronized (locks[s]) {
+                count += shards[s].getTotalGradeCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get class-wide statistics merged from every shard. Under each shard's
+     * lock only its version is checked; a shard that changed is frozen there
+     * and scanned outside the lock, and the others reuse their kept
+     * statistics.
+     * @return The class summary
+     */
+    public ClassSummary getClassSummary() {
+        Merged current = merged;
+        Partial[] partials = new Partial[shards.length];
+        RosterSnapshot[] changed = new RosterSnapshot[shards.length];
+        boolean anyChanged = false;
+        for (int s = 0; s < shards.length; s++) {
+            Partial known = current == null ? null : current.partials[s];
+            synchronized (locks[s]) {
+                if (known != null && known.version == shards[s].getVersion()) {
+                    partials[s] = known;
+                } else {
+                    changed[s] = shards[s].snapshot();
+                    anyChanged = true;
+                }
+            }
+        }
+        if (!anyChanged) {
+            return current.summary;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            if (changed[s] != null) {
+                partials[s] = summarize(s, changed[s]);
+            }
+        }
+
+        StatsAccumulator stats = new StatsAccumulator();
+        Partial top = null;
+        Partial bottom = null;
+        GradeHistogram distribution = new GradeHistogram();
+        for (Partial part : partials) {
+            distribution.addAll(part.histogram);
+            if (part.stats.getCount() == 0) {
+                continue;
+            }
+            // Count, compensated sum, highest and lowest; the slots it
+            // keeps are per shard, so the extremes are chosen below
+            stats.merge(part.stats);
+            double average = part.stats.getTopAverage();
+            if (top == null || average > top.stats.getTopAverage()
+                    || (average == top.stats.getTopAverage() && part.topSequence < top.topSequence)) {
+                top = part;
+            }
+            average = part.stats.getBottomAverage();
+            if (bottom == null || average < bottom.stats.getBottomAverage()
+                    || (average == bottom.stats.getBottomAverage() && part.bottomSequence < bottom.bottomSequence)) {
+                bottom = part;
+            }
+        }
+        ClassSummary summary = stats.getCount() == 0
+                ? new ClassSummary(0, 0.0, 0.0, 0.0, null, 0.0, null, 0.0, distribution)
+                : new ClassSummary(stats.getCount(), stats.getMean(), stats.getHighest(), stats.getLowest(),
+                        top.top, top.stats.getTopAverage(), bottom.bottom, bottom.stats.getBottomAverage(),
+                        distribution);
+        merged = new Merged(partials, summary);
+        return summary;
+    }
+
+    /**
+     * Scan a frozen shard and look up when its extremes were added
+     */
+    private Partial summarize(int shard, RosterSnapshot snapshot) {
+        StatsAccumulator stats = snapshot.getStats();
+        Student top = stats.getCount() == 0 ? null : snapshot.studentAt(stats.getTopSlot());
+        Student bottom = stats.getCount() == 0 ? null : snapshot.studentAt(stats.getBottomSlot());
+        long topSequence;
+        long bottomSequence;
+        synchronized (locks[shard]) {
+            topSequence = sequenceOf(shard, top);
+            bottomSequence = sequenceOf(shard, bottom);
+        }
+        return new Partial(snapshot.getVersion(), stats, snapshot.getGradeHistogram(),
+                top, topSequence, bottom, bottomSequence);
+    }
+
+    /**
+     * Get when a student was added to a shard. A student removed since the
+     * shard was frozen ranks after every other; the shard has changed, so
+     * the next summary scans it again. Called under the shard's lock.
+     */
+    private long sequenceOf(int shard, Student student) {
+        if (student == null || shards[shard].findStudentById(student.getId()) != student) {
+            return Long.MAX_VALUE;
+        }
+        return addOrders[shard].get(student.getId());
+    }
+
+    /**
+     * Calculate class average
+     * @return The average of all student averages
+     */
+    public double getClassAverage() {
+        return getClassSummary().getClassAverage();
+    }
+
+    /**
+     * Get the highest grade in the entire class
+     * @return The highest grade
+     */
+    public double getClassHighest() {
+        return getClassSummary().getClassHighest();
+    }
+
+    /**
+     * Get the lowest grade in the entire class
+     * @return The lowest grade
+     */
+    public double getClassLowest() {
+        return getClassSummary().getClassLowest();
+    }
+
+    /**
+     * Get the student with the highest average
+     * @return The top student, or null if no students
+     */
+    public Student getTopStudent() {
+        return getClassSummary().getTopStudent();
+    }
+
+    /**
+     * Get the student with the lowest average
+     * @return The bottom student, or null if no students
+     */
+    public Student getBottomStudent() {
+        return getClassSummary().getBottomStudent();
+    }
+
+    /**
+     * Statistics of one shard at a version, kept until the shard changes
+     */
+    private static final class Partial {
+        final long version;
+        final StatsAccumulator stats;
+        final GradeHistogram histogram;
+        final Student top;
+        final long topSequence;
+        final Student bottom;
+        final long bottomSequence;
+
+        Partial(long version, StatsAccumulator stats, GradeHistogram histogram,
+                Student top, long topSequence, Student bottom, long bottomSequence) {
+            this.version = version;
+            this.stats = stats;
+            this.histogram = histogram;
+            this.top = top;
+            this.topSequence = topSequence;
+            this.bottom = bottom;
+            this.bottomSequence = bottomSequence;
+        }
+    }
+
+    /**
+     * A merged summary and the shard statistics it was built from
+     */
+    private static final class Merged {
+        final Partial[] partials;
+        final ClassSummary summary;
+
+        Merged(Partial[] partials, ClassSummary summary) {
+            this.partials = partials;
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * Sequence number of every student of one shard, by ID. Sequences are
+     * kept in an array indexed through a StudentIndex, and the positions of
+     * removed students are reused.
+     */
+    private static final class AddOrder {
+        private final StudentIndex positions = new StudentIndex();
+        private long[] sequences = new long[16];
+        private int[] free = new int[16];
+        private int freeCount;
+        private int used;
+
+        void put(int id, long sequence) {
+            int position = freeCount > 0 ? free[--freeCount] : used++;
+            if (position == sequences.length) {
+                sequences = Arrays.copyOf(sequences, position << 1);
+            }
+            sequences[position] = sequence;
+            positions.put(id, position);
+        }
+
+        long get(int id) {
+            int position = positions.get(id);
+            return position < 0 ? Long.MAX_VALUE : sequences[position];
+        }
+
+        void remove(int id) {
+            int position = positions.remove(id);
+            if (position >= 0) {
+                if (freeCount == free.length) {
+                    free = Arrays.copyOf(free, freeCount << 1);
+                }
+                free[freeCount++] = position;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.grades;
+
+/**
+ * Mergeable running statistics over per-student rows: count, compensated
+ * sum of averages, highest and lowest grade, and the rows holding the
+ * best and worst average. Partial results for consecutive row ranges can
+ * be merged in order, so a roster can be aggregated in parallel pieces.
+ * On ties the lowest row wins, as in a single sequential pass.
+ */
+final class StatsAccumulator {
+    private int count;
+    private double averageSum;
+    private double compensation;
+    private double highest;
+    private double lowest;
+    private int topSlot = -1;
+    private double topAverage;
+    private int bottomSlot = -1;
+    private double bottomAverage;
+
+    /**
+     * Add one row; rows must be added in increasing order
+     * @param slot The row
+     * @param average The student's average grade
+     * @param high The student's highest grade
+     * @param low The student's lowest grade
+     */
+    void accept(int slot, double average, double high, double low) {
+        if (count++ == 0) {
+            highest = high;
+            lowest = low;
+            topSlot = slot;
+            bottomSlot = slot;
+            topAverage = average;
+            bottomAverage = average;
+        } else {
+            if (high > highest) {
+                highest = high;
+            }
+            if (low < lowest) {
+                lowest = low;
+            }
+            if (average > topAverage) {
+                topSlot = slot;
+                topAverage = average;
+            }
+            if (average < bottomAverage) {
+                bottomSlot = slot;
+                bottomAverage = average;
+            }
+        }
+        add(average);
+    }
+
+    /**
+     * Fold in the result for the rows that follow this one's
+     * @param later Statistics of a later, non-overlapping range of rows
+     */
+    void merge(StatsAccumulator later) {
+        if (later.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = later.count;
+            averageSum = later.averageSum;
+            compensation = later.compensation;
+            highest = later.highest;
+            lowest = later.lowest;
+            topSlot = later.topSlot;
+            topAverage = later.topAverage;
+            bottomSlot = later.bottomSlot;
+            bottomAverage = later.bottomAverage;
+            return;
+        }
+        count += later.count;
+        add(later.averageSum);
+        add(-later.compensation);
+        highest = Math.max(highest, later.highest);
+        lowest = Math.min(lowest, later.lowest);
+        if (later.topAverage > topAverage) {
+            topSlot = later.topSlot;
+            topAverage = later.topAverage;
+        }
+        if (later.bottomAverage < bottomAverage) {
+            bottomSlot = later.bottomSlot;
+            bottomAverage = later.bottomAverage;
+        }
+    }
+
+    /**
+     * Kahan summation step
+     */
+    private void add(double value) {
+        double y = value - compensation;
+        double t = averageSum + y;
+        compensation = (t - averageSum) - y;
+        averageSum = t;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getAverageSum() {
+        return averageSum;
+    }
+
+    double getMean() {
+        return count == 0 ? 0.0 : averageSum / count;
+    }
+
+    double getHighest() {
+        return highest;
+    }
+
+    double getLowest() {
+        return lowest;
+    }
+
+    int getTopSlot() {
+        return topSlot;
+    }
+
+    double getTopAverage() {
+        return topAverage;
+    }
+
+    int getBottomSlot() {
+        return bottomSlot;
+    }
+
+    double getBottomAverage() {
+        return bottomAverage;
+    }
+}
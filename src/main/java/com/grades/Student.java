@@ -1,7 +1,12 @@
 package com.grades;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 /**
  * Represents a student with their grades
@@ -9,7 +14,34 @@ import java.util.List;
 public class Student {
     private String name;
     private int id;
-    private List<Double> grades;
+    private static final short[] NO_GRADES = new short[0];
+
+    // Grades are stored unboxed in a growable array; only the first
+    // gradeCount entries are valid. While every grade is an exact multiple
+    // of 0.01 they are kept as hundredths in a short[] (2 bytes each) with
+    // an exact integer sum; the first grade that is not moves them to a
+    // double[] and hundredths is dropped.
+    private short[] hundredths;
+    private double[] grades;
+    private int gradeCount;
+    private long hundredthsSum;
+
+    // Running statistics, maintained by addGrade so every getter is O(1).
+    // sum is only used once the grades are stored as doubles.
+    private double sum;
+    private double sumCompensation;
+    private double average;
+    private double highest;
+    private double lowest;
+
+    // Grade distribution, built on the first distribution query
+    private GradeHistogram histogram;
+
+    // Manager this student belongs to, notified of every new grade
+    GradeManager manager;
+
+    // Concurrent manager this student belongs to, which locks every new grade
+    volatile ConcurrentGradeManager concurrentManager;
 
     /**
      * Constructor for creating a new student
@@ -19,7 +51,7 @@ public class Student {
     public Student(String name, int id) {
         this.name = name;
         this.id = id;
-        this.grades = new ArrayList<>();
+        this.hundredths = NO_GRADES;
     }
 
     /**
@@ -28,10 +60,113 @@ public class Student {
      * @throws IllegalArgumentException if grade is invalid
      */
     public void addGrade(double grade) {
+        checkGrade(grade);
+        GradeManager owner = manager;
+        ConcurrentGradeManager concurrentOwner = concurrentManager;
+        if (owner != null) {
+            owner.applyGrade(this, grade);
+        } else if (concurrentOwner != null) {
+            concurrentOwner.applyGrade(this, grade);
+        } else {
+            appendGrade(grade);
+        }
+    }
+
+    /**
+     * Validate a grade
+     * @param grade The grade to check
+     * @throws IllegalArgumentException if grade is not between 0 and 100
+     */
+    static void checkGrade(double grade) {
         if (grade < 0 || grade > 100) {
             throw new IllegalArgumentException("Grade must be between 0 and 100");
         }
-        grades.add(grade);
+    }
+
+    /**
+     * Append an already validated grade and update the running statistics
+     * @param grade The grade to append
+     */
+    void appendGrade(double grade) {
+        long scaled = Math.round(grade * 100);
+        if (grades == null && scaled / 100.0 != grade) {
+            widen();
+        }
+        if (grades == null) {
+            if (gradeCount == hundredths.length) {
+                hundredths = Arrays.copyOf(hundredths, newCapacity());
+            }
+            hundredths[gradeCount++] = (short) scaled;
+            hundredthsSum += scaled;
+            // Exact integer sum, rounded once by the division
+            average = hundredthsSum / (100.0 * gradeCount);
+        } else {
+            if (gradeCount == grades.length) {
+                grades = Arrays.copyOf(grades, newCapacity());
+            }
+            grades[gradeCount++] = grade;
+            // Kahan summation keeps long grade histories from drifting
+            double y = grade - sumCompensation;
+            double t = sum + y;
+            sumCompensation = (t - sum) - y;
+            sum = t;
+            average = sum / gradeCount;
+        }
+        if (histogram != null) {
+            histogram.add(grade);
+        }
+        if (gradeCount == 1) {
+            highest = grade;
+            lowest = grade;
+        } else if (grade > highest) {
+            highest = grade;
+        } else if (grade < lowest) {
+            lowest = grade;
+        }
+    }
+
+    /**
+     * Append a run of already validated grades, growing the storage once
+     * @param values Array holding the grades
+     * @param from Index of the first grade
+     * @param to Index after the last grade
+     */
+    void appendGrades(double[] values, int from, int to) {
+        int needed = gradeCount + (to - from);
+        if (grades == null && needed > hundredths.length) {
+            hundredths = Arrays.copyOf(hundredths, Math.max(needed, newCapacity()));
+        } else if (grades != null && needed > grades.length) {
+            grades = Arrays.copyOf(grades, Math.max(needed, newCapacity()));
+        }
+        for (int i = from; i < to; i++) {
+            appendGrade(values[i]);
+        }
+    }
+
+    private int newCapacity() {
+        return Math.max(4, gradeCount + (gradeCount >> 1));
+    }
+
+    /**
+     * Move the grades from hundredths to doubles, for a grade that is not
+     * a multiple of 0.01
+     */
+    private void widen() {
+        double[] widened = new double[Math.max(4, hundredths.length)];
+        for (int i = 0; i < gradeCount; i++) {
+            widened[i] = hundredths[i] / 100.0;
+        }
+        grades = widened;
+        hundredths = null;
+        sum = hundredthsSum / 100.0;
+        sumCompensation = 0;
+    }
+
+    /**
+     * Get a grade without a range check
+     */
+    private double gradeAt(int index) {
+        return grades == null ? hundredths[index] / 100.0 : grades[index];
     }
 
     /**
@@ -39,14 +174,7 @@ public class Student {
      * @return The average grade, or 0 if no grades exist
      */
     public double getAverageGrade() {
-        if (grades.isEmpty()) {
-            return 0.0;
-        }
-        double sum = 0;
-        for (double grade : grades) {
-            sum += grade;
-        }
-        return sum / grades.size();
+        return average;
     }
 
     /**
@@ -54,16 +182,10 @@ public class Student {
      * @return The highest grade, or 0 if no grades exist
      */
     public double getHighestGrade() {
-        if (grades.isEmpty()) {
+        if (gradeCount == 0) {
             return 0.0;
         }
-        double max = grades.get(0);
-        for (double grade : grades) {
-            if (grade > max) {
-                max = grade;
-            }
-        }
-        return max;
+        return highest;
     }
 
     /**
@@ -71,24 +193,134 @@ public class Student {
      * @return The lowest grade, or 0 if no grades exist
      */
     public double getLowestGrade() {
-        if (grades.isEmpty()) {
+        if (gradeCount == 0) {
             return 0.0;
         }
-        double min = grades.get(0);
-        for (double grade : grades) {
-            if (grade < min) {
-                min = grade;
+        return lowest;
+    }
+
+    /**
+     * Get the median grade
+     * @return The median (to 0.1), or 0 if no grades exist
+     */
+    public double getMedianGrade() {
+        return getHistogram().getMedian();
+    }
+
+    /**
+     * Get a percentile of the student's grades
+     * @param percentile Percentile between 0 and 100
+     * @return The grade at that percentile (to 0.1), or 0 if no grades exist
+     */
+    public double getGradePercentile(double percentile) {
+        return getHistogram().getPercentile(percentile);
+    }
+
+    /**
+     * Get the population standard deviation of the grades
+     * @return The standard deviation, or 0 if no grades exist
+     */
+    public double getStandardDeviation() {
+        return getHistogram().getStandardDeviation();
+    }
+
+    /**
+     * Get the distribution of the student's grades. The histogram is
+     * built on first use and then kept up to date by addGrade.
+     * @return Live histogram of the grades
+     */
+    public GradeHistogram getHistogram() {
+        if (histogram == null) {
+            GradeHistogram built = new GradeHistogram();
+            for (int i = 0; i < gradeCount; i++) {
+                built.add(gradeAt(i));
             }
+            histogram = built;
         }
-        return min;
+        return histogram;
+    }
+
+    /**
+     * Get the sum of all grades
+     * @return The sum of all grades (exact for grades in hundredths), or 0 if no grades exist
+     */
+    public double getGradeSum() {
+        return grades == null ? hundredthsSum / 100.0 : sum;
     }
 
     /**
      * Get all grades for the student
-     * @return List of grades
+     * @return A copy of the grades as a list
      */
     public List<Double> getGrades() {
-        return new ArrayList<>(grades);
+        List<Double> copy = new ArrayList<>(gradeCount);
+        for (int i = 0; i < gradeCount; i++) {
+            copy.add(gradeAt(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Get a read-only list view of the grades without copying them.
+     * The view reflects grades added later.
+     * @return Unmodifiable view of the grades
+     */
+    public List<Double> getGradesView() {
+        return new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return getGrade(index);
+            }
+
+            @Override
+            public int size() {
+                return gradeCount;
+            }
+        };
+    }
+
+    /**
+     * Get a single grade by position, in the order grades were added
+     * @param index Position of the grade
+     * @return The grade
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public double getGrade(int index) {
+        if (index < 0 || index >= gradeCount) {
+            throw new IndexOutOfBoundsException("Grade index " + index + " out of range for " + gradeCount + " grades");
+        }
+        return gradeAt(index);
+    }
+
+    /**
+     * Stream the grades without copying them
+     * @return Stream of grades in the order they were added
+     */
+    public DoubleStream gradeStream() {
+        if (grades == null) {
+            short[] h = hundredths;
+            return IntStream.range(0, gradeCount).mapToDouble(i -> h[i] / 100.0);
+        }
+        return Arrays.stream(grades, 0, gradeCount);
+    }
+
+    /**
+     * Pass each grade to an action without copying or boxing
+     * @param action Action to run for each grade, in the order grades were added
+     */
+    public void forEachGrade(DoubleConsumer action) {
+        int n = gradeCount;
+        double[] g = grades;
+        if (g == null) {
+            short[] h = hundredths;
+            for (int i = 0; i < n; i++) {
+                action.accept(h[i] / 100.0);
+            }
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            action.accept(g[i]);
+        }
     }
 
     /**
@@ -96,7 +328,7 @@ public class Student {
      * @return Number of grades
      */
     public int getGradeCount() {
-        return grades.size();
+        return gradeCount;
     }
 
     /**
@@ -120,7 +352,15 @@ public class Student {
      * @return Letter grade (A, B, C, D, F)
      */
     public char getLetterGrade() {
-        double avg = getAverageGrade();
+        return letterGrade(getAverageGrade());
+    }
+
+    /**
+     * Get the letter for a score
+     * @param avg A score between 0 and 100
+     * @return Letter grade (A, B, C, D, F)
+     */
+    static char letterGrade(double avg) {
         if (avg >= 90) return 'A';
         if (avg >= 80) return 'B';
         if (avg >= 70) return 'C';
@@ -0,0 +1,545 @@
+package com.grades;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Per-student statistics kept in parallel primitive columns, one row per
+ * roster slot: ID, grade count, average, highest and lowest grade. Class
+ * aggregates are tight loops over these columns instead of a walk over
+ * Student objects spread across the heap. Rows of empty slots have a
+ * count of -1.
+ *
+ * Rows are stored in pages of PAGE_ROWS rows. freeze() returns a read-only
+ * view that shares every page; the first write to a shared page afterwards
+ * copies that page, so a view costs O(1) to take and never changes, and
+ * writers only pay for the pages they touch.
+ */
+abstract class StudentColumns {
+    static final int EMPTY = -1;
+
+    // Rosters at least this large are aggregated in parallel
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    // Rows scanned by one fork/join leaf task
+    static final int SCAN_CHUNK = 1 << 14;
+
+    // Rows per page, the unit of copy-on-write
+    static final int PAGE_SHIFT = 8;
+    static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+    static final int ROW_MASK = PAGE_ROWS - 1;
+
+    /**
+     * Create columns on the Java heap
+     * @param capacity Initial number of rows
+     * @return Heap columns
+     */
+    static StudentColumns onHeap(int capacity) {
+        return new Heap(capacity);
+    }
+
+    /**
+     * Create columns in direct memory, outside the Java heap
+     * @param capacity Initial number of rows
+     * @return Off-heap columns
+     */
+    static StudentColumns offHeap(int capacity) {
+        return new Direct(capacity);
+    }
+
+    /**
+     * Get the number of rows the columns can hold
+     * @return The capacity
+     */
+    abstract int capacity();
+
+    /**
+     * Grow the columns, keeping the existing rows; new rows are empty
+     * @param capacity The new number of rows
+     */
+    abstract void grow(int capacity);
+
+    /**
+     * Copy a student's current statistics into a row
+     * @param slot The row
+     * @param s The student in that slot
+     */
+    final void set(int slot, Student s) {
+        set(slot, s.getId(), s.getGradeCount(), s.getAverageGrade(), s.getHighestGrade(), s.getLowestGrade());
+    }
+
+    /**
+     * Fill a row from stored statistics
+     * @param slot The row
+     * @param id Student ID
+     * @param count Number of grades
+     * @param average Average grade
+     * @param highest Highest grade
+     * @param lowest Lowest grade
+     */
+    abstract void set(int slot, int id, int count, double average, double highest, double lowest);
+
+    /**
+     * Mark a row as empty
+     * @param slot The row
+     */
+    abstract void clear(int slot);
+
+    /**
+     * Move a row, leaving the source row empty
+     * @param from Source row
+     * @param to Destination row
+     */
+    abstract void move(int from, int to);
+
+    /**
+     * Take a read-only view of the rows as they are now. Later writes to
+     * these columns are not visible through the view, so it can be read
+     * from other threads while they go on. Must be called by the writer.
+     * @return The view
+     */
+    abstract StudentColumns freeze();
+
+    // Fields of one row
+    abstract int id(int slot);
+
+    abstract int count(int slot);
+
+    abstract double average(int slot);
+
+    abstract double highest(int slot);
+
+    abstract double lowest(int slot);
+
+    /**
+     * Aggregate the rows below slotCount. Empty rows are skipped; on ties
+     * the lowest row wins. Large rosters are split into ranges that are
+     * scanned on the common ForkJoinPool and merged in row order.
+     * @param slotCount Number of rows to scan
+     * @return The statistics of every non-empty row
+     */
+    StatsAccumulator scan(int slotCount) {
+        if (slotCount >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool().invoke(new ScanTask(this, 0, slotCount));
+        }
+        StatsAccumulator stats = new StatsAccumulator();
+        scanRange(0, slotCount, stats);
+        return stats;
+    }
+
+    /**
+     * Add the non-empty rows of a range to an accumulator, in row order
+     * @param from First row
+     * @param to Row after the last
+     * @param stats Where the rows are added
+     */
+    abstract void scanRange(int from, int to, StatsAccumulator stats);
+
+    /**
+     * Scan of a row range that splits itself in halves down to SCAN_CHUNK rows
+     */
+    private static final class ScanTask extends RecursiveTask<StatsAccumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient StudentColumns columns;
+        private final int from;
+        private final int to;
+
+        ScanTask(StudentColumns columns, int from, int to) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StatsAccumulator compute() {
+            if (to - from <= SCAN_CHUNK) {
+                StatsAccumulator stats = new StatsAccumulator();
+                columns.scanRange(from, to, stats);
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask later = new ScanTask(columns, mid, to);
+            later.fork();
+            StatsAccumulator stats = new ScanTask(columns, from, mid).compute();
+            stats.merge(later.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Page directory with copy-on-write. Every page but the last holds
+     * PAGE_ROWS rows; the last may be shorter and is replaced by a larger
+     * copy as the columns grow.
+     */
+    private abstract static class Paged<P> extends StudentColumns {
+        P[] pages;
+        private int capacity;
+        // Epoch in which this instance last copied each page; a page is
+        // only written in place while its epoch is the current one.
+        // Null in a frozen view.
+        private long[] pageEpochs;
+        private long epoch;
+        // True while a frozen view holds the same directory array
+        private boolean directoryShared;
+
+        Paged(P[] pages, int capacity, boolean frozen) {
+            this.pages = pages;
+            this.capacity = capacity;
+            this.pageEpochs = frozen ? null : new long[pages.length];
+        }
+
+        /** A page of empty rows */
+        abstract P newPage(int rows);
+
+        /** A copy of a page holding rows rows; rows past the original are empty */
+        abstract P copyPage(P page, int rows);
+
+        abstract int rows(P page);
+
+        /** A frozen view over a directory */
+        abstract StudentColumns view(P[] directory, int rows);
+
+        @Override
+        int capacity() {
+            return capacity;
+        }
+
+        @Override
+        void grow(int newCapacity) {
+            int count = (newCapacity + ROW_MASK) >>> PAGE_SHIFT;
+            P[] grown = Arrays.copyOf(pages, count);
+            long[] epochs = Arrays.copyOf(pageEpochs, count);
+            for (int p = Math.max(0, pages.length - 1); p < count; p++) {
+                int rows = Math.min(PAGE_ROWS, newCapacity - (p << PAGE_SHIFT));
+                if (grown[p] == null) {
+                    grown[p] = newPage(rows);
+                    epochs[p] = epoch;
+                } else if (rows(grown[p]) < rows) {
+                    grown[p] = copyPage(grown[p], rows);
+                    epochs[p] = epoch;
+                }
+            }
+            pages = grown;
+            pageEpochs = epochs;
+            directoryShared = false;
+            capacity = newCapacity;
+        }
+
+        /**
+         * Get the page holding a row, copying it first if a view shares it
+         */
+        final P writable(int slot) {
+            int p = slot >>> PAGE_SHIFT;
+            if (directoryShared) {
+                pages = pages.clone();
+                directoryShared = false;
+            }
+            if (pageEpochs[p] != epoch) {
+                pages[p] = copyPage(pages[p], rows(pages[p]));
+                pageEpochs[p] = epoch;
+            }
+            return pages[p];
+        }
+
+        @Override
+        StudentColumns freeze() {
+            directoryShared = true;
+            epoch++;
+            return view(pages, capacity);
+        }
+    }
+
+    /**
+     * A page of columns as primitive arrays
+     */
+    private static final class HeapPage {
+        final int[] ids;
+        final int[] counts;
+        final double[] averages;
+        final double[] highs;
+        final double[] lows;
+
+        HeapPage(int rows) {
+            ids = new int[rows];
+            counts = new int[rows];
+            averages = new double[rows];
+            highs = new double[rows];
+            lows = new double[rows];
+            Arrays.fill(counts, EMPTY);
+        }
+
+        HeapPage(HeapPage source, int rows) {
+            ids = Arrays.copyOf(source.ids, rows);
+            counts = Arrays.copyOf(source.counts, rows);
+            averages = Arrays.copyOf(source.averages, rows);
+            highs = Arrays.copyOf(source.highs, rows);
+            lows = Arrays.copyOf(source.lows, rows);
+            Arrays.fill(counts, source.counts.length, rows, EMPTY);
+        }
+    }
+
+    /**
+     * Columns as pages of primitive arrays
+     */
+    private static final class Heap extends Paged<HeapPage> {
+        Heap(int capacity) {
+            super(new HeapPage[0], 0, false);
+            grow(capacity);
+        }
+
+        private Heap(HeapPage[] pages, int capacity) {
+            super(pages, capacity, true);
+        }
+
+        @Override
+        HeapPage newPage(int rows) {
+            return new HeapPage(rows);
+        }
+
+        @Override
+        HeapPage copyPage(HeapPage page, int rows) {
+            return new HeapPage(page, rows);
+        }
+
+        @Override
+        int rows(HeapPage page) {
+            return page.counts.length;
+        }
+
+        @Override
+        StudentColumns view(HeapPage[] directory, int rows) {
+            return new Heap(directory, rows);
+        }
+
+        @Override
+        void set(int slot, int id, int count, double average, double highest, double lowest) {
+            HeapPage page = writable(slot);
+            int r = slot & ROW_MASK;
+            page.ids[r] = id;
+            page.counts[r] = count;
+            page.averages[r] = average;
+            page.highs[r] = highest;
+            page.lows[r] = lowest;
+        }
+
+        @Override
+        void clear(int slot) {
+            writable(slot).counts[slot & ROW_MASK] = EMPTY;
+        }
+
+        @Override
+        void move(int from, int to) {
+            HeapPage dst = writable(to);
+            HeapPage src = writable(from);
+            int f = from & ROW_MASK;
+            int t = to & ROW_MASK;
+            dst.ids[t] = src.ids[f];
+            dst.counts[t] = src.counts[f];
+            dst.averages[t] = src.averages[f];
+            dst.highs[t] = src.highs[f];
+            dst.lows[t] = src.lows[f];
+            src.counts[f] = EMPTY;
+        }
+
+        @Override
+        int id(int slot) {
+            return pages[slot >>> PAGE_SHIFT].ids[slot & ROW_MASK];
+        }
+
+        @Override
+        int count(int slot) {
+            return pages[slot >>> PAGE_SHIFT].counts[slot & ROW_MASK];
+        }
+
+        @Override
+        double average(int slot) {
+            return pages[slot >>> PAGE_SHIFT].averages[slot & ROW_MASK];
+        }
+
+        @Override
+        double highest(int slot) {
+            return pages[slot >>> PAGE_SHIFT].highs[slot & ROW_MASK];
+        }
+
+        @Override
+        double lowest(int slot) {
+            return pages[slot >>> PAGE_SHIFT].lows[slot & ROW_MASK];
+        }
+
+        @Override
+        void scanRange(int from, int to, StatsAccumulator stats) {
+            int slot = from;
+            while (slot < to) {
+                HeapPage page = pages[slot >>> PAGE_SHIFT];
+                int base = slot & ~ROW_MASK;
+                int end = Math.min(to - base, page.counts.length);
+                int[] c = page.counts;
+                double[] a = page.averages;
+                double[] h = page.highs;
+                double[] l = page.lows;
+                for (int r = slot - base; r < end; r++) {
+                    if (c[r] != EMPTY) {
+                        stats.accept(base + r, a[r], h[r], l[r]);
+                    }
+                }
+                slot = base + end;
+            }
+        }
+    }
+
+    /**
+     * Columns as pages of direct memory, one buffer per page laid out as
+     * the ID, count, average, highest and lowest column of its rows, read
+     * and written at absolute offsets in native byte order
+     */
+    private static final class Direct extends Paged<ByteBuffer> {
+        // Bytes per row over all five columns
+        private static final int ROW_BYTES = 32;
+
+        Direct(int capacity) {
+            super(new ByteBuffer[0], 0, false);
+            grow(capacity);
+        }
+
+        private Direct(ByteBuffer[] pages, int capacity) {
+            super(pages, capacity, true);
+        }
+
+        private static int countAt(int rows, int r) {
+            return (rows + r) << 2;
+        }
+
+        private static int averageAt(int rows, int r) {
+            return (rows + r) << 3;
+        }
+
+        private static int highAt(int rows, int r) {
+            return (2 * rows + r) << 3;
+        }
+
+        private static int lowAt(int rows, int r) {
+            return (3 * rows + r) << 3;
+        }
+
+        @Override
+        ByteBuffer newPage(int rows) {
+            ByteBuffer page = ByteBuffer.allocateDirect(rows * ROW_BYTES).order(ByteOrder.nativeOrder());
+            for (int r = 0; r < rows; r++) {
+                page.putInt(countAt(rows, r), EMPTY);
+            }
+            return page;
+        }
+
+        @Override
+        ByteBuffer copyPage(ByteBuffer page, int rows) {
+            int old = rows(page);
+            if (old == rows) {
+                return ByteBuffer.allocateDirect(rows * ROW_BYTES).order(ByteOrder.nativeOrder())
+                        .put(page.duplicate().clear()).clear();
+            }
+            ByteBuffer copy = newPage(rows);
+            for (int r = 0; r < old; r++) {
+                copy.putInt(r << 2, page.getInt(r << 2));
+                copy.putInt(countAt(rows, r), page.getInt(countAt(old, r)));
+                copy.putDouble(averageAt(rows, r), page.getDouble(averageAt(old, r)));
+                copy.putDouble(highAt(rows, r), page.getDouble(highAt(old, r)));
+                copy.putDouble(lowAt(rows, r), page.getDouble(lowAt(old, r)));
+            }
+            return copy;
+        }
+
+        @Override
+        int rows(ByteBuffer page) {
+            return page.capacity() / ROW_BYTES;
+        }
+
+        @Override
+        StudentColumns view(ByteBuffer[] directory, int rows) {
+            return new Direct(directory, rows);
+        }
+
+        @Override
+        void set(int slot, int id, int count, double average, double highest, double lowest) {
+            ByteBuffer page = writable(slot);
+            int rows = rows(page);
+            int r = slot & ROW_MASK;
+            page.putInt(r << 2, id);
+            page.putInt(countAt(rows, r), count);
+            page.putDouble(averageAt(rows, r), average);
+            page.putDouble(highAt(rows, r), highest);
+            page.putDouble(lowAt(rows, r), lowest);
+        }
+
+        @Override
+        void clear(int slot) {
+            ByteBuffer page = writable(slot);
+            page.putInt(countAt(rows(page), slot & ROW_MASK), EMPTY);
+        }
+
+        @Override
+        void move(int from, int to) {
+            ByteBuffer dst = writable(to);
+            ByteBuffer src = writable(from);
+            int dr = rows(dst);
+            int sr = rows(src);
+            int f = from & ROW_MASK;
+            int t = to & ROW_MASK;
+            dst.putInt(t << 2, src.getInt(f << 2));
+            dst.putInt(countAt(dr, t), src.getInt(countAt(sr, f)));
+            dst.putDouble(averageAt(dr, t), src.getDouble(averageAt(sr, f)));
+            dst.putDouble(highAt(dr, t), src.getDouble(highAt(sr, f)));
+            dst.putDouble(lowAt(dr, t), src.getDouble(lowAt(sr, f)));
+            src.putInt(countAt(sr, f), EMPTY);
+        }
+
+        @Override
+        int id(int slot) {
+            return pages[slot >>> PAGE_SHIFT].getInt((slot & ROW_MASK) << 2);
+        }
+
+        @Override
+        int count(int slot) {
+            ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+            return page.getInt(countAt(rows(page), slot & ROW_MASK));
+        }
+
+        @Override
+        double average(int slot) {
+            ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+            return page.getDouble(averageAt(rows(page), slot & ROW_MASK));
+        }
+
+        @Override
+        double highest(int slot) {
+            ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+            return page.getDouble(highAt(rows(page), slot & ROW_MASK));
+        }
+
+        @Override
+        double lowest(int slot) {
+            ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+            return page.getDouble(lowAt(rows(page), slot & ROW_MASK));
+        }
+
+        @Override
+        void scanRange(int from, int to, StatsAccumulator stats) {
+            int slot = from;
+            while (slot < to) {
+                ByteBuffer page = pages[slot >>> PAGE_SHIFT];
+                int rows = rows(page);
+                int base = slot & ~ROW_MASK;
+                int end = Math.min(to - base, rows);
+                for (int r = slot - base; r < end; r++) {
+                    if (page.getInt(countAt(rows, r)) != EMPTY) {
+                        stats.accept(base + r, page.getDouble(averageAt(rows, r)),
+                                page.getDouble(highAt(rows, r)), page.getDouble(lowAt(rows, r)));
+                    }
+                }
+                slot = base + end;
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.grades;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
-import java.util.List;
 
 /**
  * Main application for managing student grades
@@ -15,7 +19,15 @@ public class StudentGradeApp {
      * Constructor for the application
      */
     public StudentGradeApp() {
-        this.gradeManager = new GradeManager();
+        this(new GradeManager());
+    }
+
+    /**
+     * Constructor for the application working on an existing manager
+     * @param gradeManager The manager holding the students
+     */
+    public StudentGradeApp(GradeManager gradeManager) {
+        this.gradeManager = gradeManager;
         this.scanner = new Scanner(System.in);
     }
 
@@ -55,6 +67,9 @@ public class StudentGradeApp {
                     System.out.println("\nThank you for using the Student Grade Management System!");
                     running = false;
                     break;
+                case 8:
+                    displayStats();
+                    break;
                 default:
                     System.out.println("❌ Invalid choice. Please try again.");
             }
@@ -75,8 +90,9 @@ public class StudentGradeApp {
         System.out.println("│ 5. List all students                        │");
         System.out.println("│ 6. Remove a student                         │");
         System.out.println("│ 7. Exit                                     │");
+        System.out.println("│ 8. Stats                                    │");
         System.out.println("└─────────────────────────────────────────────┘");
-        System.out.print("Enter your choice (1-7): ");
+        System.out.print("Enter your choice (1-8): ");
     }
 
     /**
@@ -155,9 +171,17 @@ public class StudentGradeApp {
             System.out.println("│ Average: " + padRight(String.format("%.2f", student.getAverageGrade()), 32) + "│");
             System.out.println("│ Highest: " + padRight(String.format("%.1f", student.getHighestGrade()), 32) + "│");
             System.out.println("│ Lowest: " + padRight(String.format("%.1f", student.getLowestGrade()), 33) + "│");
+            System.out.println("│ Median: " + padRight(String.format("%.1f", student.getMedianGrade()), 33) + "│");
             System.out.println("│ Grade: " + padRight("" + student.getLetterGrade(), 34) + "│");
 
-            List<Double> grades = student.getGrades();
+            StringBuilder grades = new StringBuilder("[");
+            student.forEachGrade(g -> {
+                if (grades.length() > 1) {
+                    grades.append(", ");
+                }
+                grades.append(g);
+            });
+            grades.append(']');
             System.out.println("│ All Grades: " + padRight(grades.toString(), 28) + "│");
         }
         System.out.println("└───────────────────────────────────────────┘");
@@ -167,76 +191,48 @@ public class StudentGradeApp {
      * Display summary report for all students
      */
     private void displaySummaryReport() {
-        System.out.println("\n╔═ CLASS SUMMARY REPORT ═════════════════════╗");
-
-        if (gradeManager.getStudentCount() == 0) {
-            System.out.println("║ No students in the system.                 ║");
-            System.out.println("╚════════════════════════════════════════════╝");
-            return;
-        }
-
-        System.out.println("║ Total Students: " + padRight("" + gradeManager.getStudentCount(), 27) + "║");
-        System.out.println("╟────────────────────────────────────────────╢");
-
-        // Class statistics
-        System.out.println("║ CLASS STATISTICS:                          ║");
-        System.out.println("║ ├─ Class Average: " + padRight(String.format("%.2f", gradeManager.getClassAverage()), 24) + "║");
-        System.out.println("║ ├─ Highest Grade: " + padRight(String.format("%.1f", gradeManager.getClassHighest()), 24) + "║");
-        System.out.println("║ └─ Lowest Grade: " + padRight(String.format("%.1f", gradeManager.getClassLowest()), 25) + "║");
-        System.out.println("╟────────────────────────────────────────────╢");
-
-        // Top and bottom students
-        Student topStudent = gradeManager.getTopStudent();
-        Student bottomStudent = gradeManager.getBottomStudent();
-
-        if (topStudent != null) {
-            System.out.println("║ TOP PERFORMER:                             ║");
-            System.out.println("║ ├─ Name: " + padRight(topStudent.getName(), 32) + "║");
-            System.out.println("║ ├─ ID: " + padRight("" + topStudent.getId(), 34) + "║");
-            System.out.println("║ └─ Average: " + padRight(String.format("%.2f", topStudent.getAverageGrade()), 30) + "║");
-        }
-
-        System.out.println("╟────────────────────────────────────────────╢");
-
-        if (bottomStudent != null) {
-            System.out.println("║ NEEDS IMPROVEMENT:                         ║");
-            System.out.println("║ ├─ Name: " + padRight(bottomStudent.getName(), 32) + "║");
-            System.out.println("║ ├─ ID: " + padRight("" + bottomStudent.getId(), 34) + "║");
-            System.out.println("║ └─ Average: " + padRight(String.format("%.2f", bottomStudent.getAverageGrade()), 30) + "║");
+        System.out.println();
+        try (ReportWriter report = ReportWriter.toStdout()) {
+            report.writeSummary(gradeManager.snapshot().getClassSummary());
+        } catch (IOException e) {
+            System.out.println("❌ Error: " + e.getMessage());
         }
-
-        System.out.println("╚════════════════════════════════════════════╝");
     }
 
     /**
      * List all students with their statistics
      */
     private void listAllStudents() {
-        System.out.println("\n--- All Students ---");
+        System.out.println();
+        try (ReportWriter report = ReportWriter.toStdout()) {
+            report.writeStudentTable(gradeManager.snapshot());
+        } catch (IOException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        }
+    }
 
-        List<Student> students = gradeManager.getAllStudents();
-        if (students.isEmpty()) {
-            System.out.println("No students in the system.");
+    /**
+     * Display operation counts, latencies and roster gauges
+     */
+    private void displayStats() {
+        GradeMetrics metrics = gradeManager.getMetrics();
+        if (metrics == null) {
+            System.out.println("❌ Metrics are disabled.");
             return;
         }
-
-        System.out.println("┌────────────────────────────────────────────────────────────────────┐");
-        System.out.println("│ ID   │ Name               │ Avg    │ High  │ Low   │ Grade │ Count │");
-        System.out.println("├────────────────────────────────────────────────────────────────────┤");
-
-        for (Student student : students) {
-            String row = String.format("│ %-4d │ %-18s │ %6.2f │ %5.1f │ %5.1f │ %5c │ %5d │",
-                    student.getId(),
-                    student.getName(),
-                    student.getAverageGrade(),
-                    student.getHighestGrade(),
-                    student.getLowestGrade(),
-                    student.getLetterGrade(),
-                    student.getGradeCount());
-            System.out.println(row);
+        System.out.println("\n┌─ Operation Stats ───────────────────────────────────────────┐");
+        System.out.println("│ Students: " + padRight("" + metrics.getStudentCount(), 50) + "│");
+        System.out.println("│ Grades: " + padRight("" + metrics.getGradeCount(), 52) + "│");
+        System.out.println("│ Heap in use: " + padRight((metrics.getUsedHeapBytes() >> 20) + " MB", 47) + "│");
+        System.out.println("├─────────────────────────────────────────────────────────────┤");
+        System.out.println("│ Operation       Count    Mean µs   p50 µs   p99 µs   Max µs │");
+        for (GradeMetrics.Operation op : GradeMetrics.Operation.values()) {
+            System.out.println(String.format("│ %-12s %8d %10.1f %8.1f %8.1f %8.1f │", op.name(),
+                    metrics.getCount(op), metrics.getMeanNanos(op) / 1000.0,
+                    metrics.getPercentileNanos(op, 50) / 1000.0, metrics.getPercentileNanos(op, 99) / 1000.0,
+                    metrics.getMaxNanos(op) / 1000.0));
         }
-
-        System.out.println("└────────────────────────────────────────────────────────────────────┘");
+        System.out.println("└─────────────────────────────────────────────────────────────┘");
     }
 
     /**
@@ -299,9 +295,178 @@ public class StudentGradeApp {
 
     /**
      * Main method to start the application
+     * Usage: StudentGradeApp [--data DIR] [--import FILE] [--export FILE] [--metrics]
+     * With --data, students and grades are stored durably in DIR.
+     * With --import, rows of a CSV/TSV file or a binary archive are loaded
+     * before the menu starts.
+     * With --export, the roster is written as a binary archive on exit.
+     * With --metrics, operations are counted and timed in batch and server
+     * mode; the menu always records them for its Stats option.
      */
     public static void main(String[] args) {
-        StudentGradeApp app = new StudentGradeApp();
-        app.start();
+        String dataDir = null;
+        String importFile = null;
+        String exportFile = null;
+        boolean batch = false;
+        String batchFile = null;
+        int servePort = -1;
+        boolean metrics = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--data") && i + 1 < args.length) {
+                dataDir = args[++i];
+            } else if (args[i].equals("--import") && i + 1 < args.length) {
+                importFile = args[++i];
+            } else if (args[i].equals("--export") && i + 1 < args.length) {
+                exportFile = args[++i];
+            } else if (args[i].equals("--metrics")) {
+                metrics = true;
+            } else if (args[i].equals("--batch")) {
+                batch = true;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    batchFile = args[++i];
+                }
+            } else if (args[i].equals("--serve")) {
+                servePort = 8080;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    try {
+                        servePort = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        usage();
+                    }
+                }
+            } else {
+                usage();
+            }
+        }
+        if (servePort >= 0 && (batch || exportFile != null)) {
+            usage();
+        }
+
+        GradeManager gradeManager = new GradeManager();
+        GradeJournal journal = null;
+        if (dataDir != null) {
+            try {
+                journal = GradeJournal.open(Paths.get(dataDir), gradeManager);
+            } catch (IOException e) {
+                System.err.println("❌ Cannot open data directory: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (importFile != null) {
+            try {
+                if (GradeArchive.isArchive(Paths.get(importFile))) {
+                    long students = GradeArchive.read(Paths.get(importFile), gradeManager);
+                    System.out.println("✓ Imported " + importFile + ": " + students + " students");
+                } else {
+                    BulkImporter.ImportResult result = new BulkImporter().importFile(Paths.get(importFile), gradeManager);
+                    System.out.println("✓ Imported " + importFile + ": " + result);
+                }
+            } catch (IOException e) {
+                System.err.println("❌ Cannot import " + importFile + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // Enabled after loading, so the counts cover this session's work
+        if (metrics || (!batch && servePort < 0)) {
+            gradeManager.enableMetrics();
+        }
+
+        if (servePort >= 0) {
+            runServer(gradeManager, servePort, journal);
+            return;
+        }
+
+        int status = 0;
+        if (batch) {
+            status = runBatch(gradeManager, batchFile);
+        } else {
+            StudentGradeApp app = new StudentGradeApp(gradeManager);
+            app.start();
+        }
+
+        if (exportFile != null) {
+            try {
+                GradeArchive.write(gradeManager, Paths.get(exportFile), true);
+                System.out.println("✓ Exported " + gradeManager.getStudentCount() + " students to " + exportFile);
+            } catch (IOException e) {
+                System.err.println("❌ Cannot export " + exportFile + ": " + e.getMessage());
+                status = 1;
+            }
+        }
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("❌ Could not save data: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Print the command line usage and exit
+     */
+    private static void usage() {
+        System.err.println("Usage: StudentGradeApp [--data DIR] [--import FILE] [--export FILE] [--metrics] [--batch [FILE] | --serve [PORT]]");
+        System.exit(2);
+    }
+
+    /**
+     * Serve the manager over HTTP until the process is stopped
+     * @param gradeManager The manager to serve
+     * @param port Port to listen on
+     * @param journal Journal to close on shutdown, or null
+     */
+    private static void runServer(GradeManager gradeManager, int port, GradeJournal journal) {
+        // Small responses otherwise wait on delayed ACKs; the embedded server
+        // reads this once, so it must be set before the server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        GradeServer server;
+        try {
+            server = new GradeServer(gradeManager, new InetSocketAddress(port));
+        } catch (IOException e) {
+            System.err.println("❌ Cannot listen on port " + port + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("❌ Could not save data: " + e.getMessage());
+                }
+            }
+        }));
+        server.start();
+        System.out.println("✓ Serving on port " + server.getPort());
+    }
+
+    /**
+     * Run a command script without the menu
+     * @param gradeManager The manager the commands act on
+     * @param file The script file, or null or "-" for standard input
+     * @return The exit status of the run
+     */
+    private static int runBatch(GradeManager gradeManager, String file) {
+        BatchRunner runner = new BatchRunner(gradeManager);
+        if (file == null || file.equals("-")) {
+            return runner.run(System.in);
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            return runner.run(in);
+        } catch (IOException e) {
+            System.err.println("❌ Cannot read " + file + ": " + e.getMessage());
+            return BatchRunner.EXIT_ERROR;
+        }
     }
 }
@@ -0,0 +1,202 @@
+package com.grades;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash index from student ID to a slot position.
+ * Keys are primitive ints, so no ID is ever boxed. Uses linear probing
+ * with backward-shift deletion, which keeps probe chains short without
+ * tombstones.
+ */
+class StudentIndex {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructor for an empty index
+     */
+    StudentIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor for an index pre-sized for the expected number of IDs
+     * @param expected Number of IDs expected to be stored
+     */
+    StudentIndex(int expected) {
+        allocate(tableSizeFor(expected));
+    }
+
+    /**
+     * Look up the slot for an ID
+     * @param id The student ID
+     * @return The slot, or -1 if the ID is not present
+     */
+    int get(int id) {
+        int i = mix(id) & mask;
+        while (true) {
+            int v = values[i];
+            if (v == EMPTY) {
+                return EMPTY;
+            }
+            if (keys[i] == id) {
+                return v;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Check whether an ID is present
+     * @param id The student ID
+     * @return true if the ID is indexed
+     */
+    boolean contains(int id) {
+        return get(id) != EMPTY;
+    }
+
+    /**
+     * Insert or replace the slot for an ID
+     * @param id The student ID
+     * @param slot The slot position (must be non-negative)
+     * @return The previous slot, or -1 if the ID was not present
+     */
+    int put(int id, int slot) {
+        int i = mix(id) & mask;
+        while (true) {
+            int v = values[i];
+            if (v == EMPTY) {
+                keys[i] = id;
+                values[i] = slot;
+                if (++size > resizeAt) {
+                    rehash(values.length << 1);
+                }
+                return EMPTY;
+            }
+            if (keys[i] == id) {
+                values[i] = slot;
+                return v;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Remove an ID from the index
+     * @param id The student ID
+     * @return The slot the ID mapped to, or -1 if it was not present
+     */
+    int remove(int id) {
+        int i = mix(id) & mask;
+        while (true) {
+            int v = values[i];
+            if (v == EMPTY) {
+                return EMPTY;
+            }
+            if (keys[i] == id) {
+                shiftBack(i);
+                size--;
+                return v;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the number of indexed IDs
+     * @return Number of IDs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Grow the table so it can hold the given number of IDs without rehashing
+     * @param expected Number of IDs expected to be stored
+     */
+    void reserve(int expected) {
+        int capacity = tableSizeFor(expected);
+        if (capacity > values.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Remove every ID from the index
+     */
+    void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Close the gap left at position i by moving later entries of the
+     * probe chain back, so lookups never need tombstones.
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            int v = values[i];
+            if (v == EMPTY) {
+                break;
+            }
+            int home = mix(keys[i]) & mask;
+            // Move the entry if its home position is not cyclically in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = v;
+                gap = i;
+            }
+        }
+        values[gap] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            int v = oldValues[i];
+            if (v != EMPTY) {
+                int j = mix(oldKeys[i]) & mask;
+                while (values[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = v;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.6f);
+    }
+
+    private static int tableSizeFor(int expected) {
+        int needed = (int) Math.min(1 << 30, Math.max(MIN_CAPACITY, (long) (expected / 0.6f) + 1));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Spread sequential IDs across the table (murmur3 finalizer)
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
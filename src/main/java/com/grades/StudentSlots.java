@@ -0,0 +1,108 @@
+package com.grades;
+
+import java.util.Arrays;
+
+/**
+ * The student held in each roster slot, stored in pages of
+ * StudentColumns.PAGE_ROWS slots. freeze() returns a read-only view that
+ * shares every page; the first write to a shared page afterwards copies
+ * that page, as StudentColumns does for the statistic rows. A snapshot
+ * therefore costs O(1) to take, and a removal after it copies one page
+ * rather than the whole roster.
+ */
+final class StudentSlots {
+    private static final int PAGE_SHIFT = StudentColumns.PAGE_SHIFT;
+    private static final int PAGE_ROWS = StudentColumns.PAGE_ROWS;
+    private static final int ROW_MASK = StudentColumns.ROW_MASK;
+
+    private Student[][] pages;
+    private int capacity;
+    // Epoch in which each page was last copied; a page is only written in
+    // place while its epoch is the current one. Null in a frozen view.
+    private long[] pageEpochs;
+    private long epoch;
+    // True while a frozen view holds the same directory array
+    private boolean directoryShared;
+
+    /**
+     * Constructor for empty slots
+     * @param capacity Initial number of slots
+     */
+    StudentSlots(int capacity) {
+        this.pages = new Student[0][];
+        this.pageEpochs = new long[0];
+        grow(capacity);
+    }
+
+    private StudentSlots(Student[][] pages, int capacity) {
+        this.pages = pages;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the number of slots
+     * @return The capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the student in a slot
+     * @param slot The slot
+     * @return The student, or null for an empty slot
+     */
+    Student get(int slot) {
+        return pages[slot >>> PAGE_SHIFT][slot & ROW_MASK];
+    }
+
+    /**
+     * Put a student in a slot, copying its page first if a view shares it
+     * @param slot The slot
+     * @param student The student, or null to empty the slot
+     */
+    void set(int slot, Student student) {
+        int p = slot >>> PAGE_SHIFT;
+        if (directoryShared) {
+            pages = pages.clone();
+            directoryShared = false;
+        }
+        if (pageEpochs[p] != epoch) {
+            pages[p] = pages[p].clone();
+            pageEpochs[p] = epoch;
+        }
+        pages[p][slot & ROW_MASK] = student;
+    }
+
+    /**
+     * Grow the slots, keeping the existing ones; new slots are empty
+     * @param newCapacity The new number of slots
+     */
+    void grow(int newCapacity) {
+        int count = (newCapacity + ROW_MASK) >>> PAGE_SHIFT;
+        Student[][] grown = Arrays.copyOf(pages, count);
+        long[] epochs = Arrays.copyOf(pageEpochs, count);
+        for (int p = Math.max(0, pages.length - 1); p < count; p++) {
+            int rows = Math.min(PAGE_ROWS, newCapacity - (p << PAGE_SHIFT));
+            if (grown[p] == null || grown[p].length < rows) {
+                grown[p] = grown[p] == null ? new Student[rows] : Arrays.copyOf(grown[p], rows);
+                epochs[p] = epoch;
+            }
+        }
+        pages = grown;
+        pageEpochs = epochs;
+        directoryShared = false;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Take a read-only view of the slots as they are now. Later writes are
+     * not visible through the view. Must be called by the writer.
+     * @return The view
+     */
+    StudentSlots freeze() {
+        directoryShared = true;
+        epoch++;
+        return new StudentSlots(pages, capacity);
+    }
+}
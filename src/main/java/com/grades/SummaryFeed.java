@@ -0,0 +1,482 @@
+package com.grades;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a Delta to every subscriber whenever a GradeManager's class
+ * summary changes, so dashboards can follow the roster without polling.
+ *
+ * The feed listens to the manager, and a change only bumps a counter on
+ * the writer's thread. Changes are coalesced: one refresh at a time runs
+ * on the executor, takes a snapshot under the caller's lock, computes the
+ * summary once outside it, and hands the same Delta to every subscriber.
+ * Nothing is computed while there are no subscribers.
+ *
+ * Each subscriber has its own buffer of at most bufferSize deltas and
+ * receives only what it has requested. When its buffer is full, the
+ * newest delta is merged into the last buffered one, so a slow subscriber
+ * sees fewer, larger steps and never misses a change. A new subscriber
+ * first receives the latest state as an initial delta.
+ *
+ * Every change to the manager must be made while holding the lock given
+ * to the constructor.
+ */
+public final class SummaryFeed implements Flow.Publisher<SummaryFeed.Delta>, AutoCloseable {
+    /** Default number of deltas buffered per subscriber */
+    public static final int DEFAULT_BUFFER_SIZE = 16;
+
+    private static final char[] LETTERS = {'A', 'B', 'C', 'D', 'F'};
+
+    private final GradeManager manager;
+    private final Object lock;
+    private final Executor executor;
+    private final int bufferSize;
+    private final ConcurrentHashMap<Flow.Subscriber<? super Delta>, Link> links = new ConcurrentHashMap<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final GradeListener listener = new GradeListener() {
+        @Override
+        public void studentAdded(Student student) {
+            changed();
+        }
+
+        @Override
+        public void gradeAdded(Student student, double grade) {
+            changed();
+        }
+
+        @Override
+        public void gradesAdded(Student student, double[] grades, int from, int to) {
+            changed();
+        }
+
+        @Override
+        public void studentRemoved(Student student) {
+            changed();
+        }
+    };
+    // Guarded by this, together with publishing to the links
+    private ClassSummary latest;
+    private long version = -1;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for a feed delivering on the common fork/join pool
+     * @param manager The manager to follow
+     * @param lock The lock every writer of the manager holds
+     */
+    public SummaryFeed(GradeManager manager, Object lock) {
+        this(manager, lock, ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor for a feed
+     * @param manager The manager to follow
+     * @param lock The lock every writer of the manager holds
+     * @param executor Runs refreshes and delivers to subscribers
+     * @param bufferSize Number of deltas buffered per subscriber
+     * @throws IllegalArgumentException if bufferSize is less than 1
+     */
+    public SummaryFeed(GradeManager manager, Object lock, Executor executor, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        this.manager = Objects.requireNonNull(manager);
+        this.lock = Objects.requireNonNull(lock);
+        this.executor = Objects.requireNonNull(executor);
+        this.bufferSize = bufferSize;
+        synchronized (lock) {
+            manager.addListener(listener);
+        }
+    }
+
+    /**
+     * Subscribe to the feed. The subscriber first receives the latest
+     * state, then one delta per coalesced change, as far as it requests.
+     * @param subscriber The subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Delta> subscriber) {
+        Objects.requireNonNull(subscriber);
+        Link link = new Link(subscriber);
+        synchronized (this) {
+            if (closed) {
+                link.complete();
+                return;
+            }
+            if (links.putIfAbsent(subscriber, link) != null) {
+                link.fail(new IllegalStateException("Already subscribed"));
+                return;
+            }
+            if (latest != null) {
+                link.offer(new Delta(null, latest, version));
+            }
+            link.schedule();
+        }
+        // Brings the latest state up to date, as nothing is refreshed
+        // while there are no subscribers
+        changed();
+    }
+
+    /**
+     * Get the number of current subscribers
+     * @return Number of subscribers
+     */
+    public int getSubscriberCount() {
+        return links.size();
+    }
+
+    /**
+     * Stop following the manager. Subscribers receive what is already
+     * buffered, then onComplete.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            manager.removeListener(listener);
+        }
+        synchronized (this) {
+            closed = true;
+            for (Link link : links.values()) {
+                link.complete();
+            }
+        }
+    }
+
+    /**
+     * Note a change, starting a refresh unless one is already due
+     */
+    private void changed() {
+        if (links.isEmpty() || closed) {
+            return;
+        }
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(this::refreshAll);
+        }
+    }
+
+    /**
+     * Refresh until no change arrived during the last refresh
+     */
+    private void refreshAll() {
+        long missed = pending.get();
+        do {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                for (Link link : links.values()) {
+                    link.fail(e);
+                }
+            }
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void refresh() {
+        if (closed) {
+            return;
+        }
+        RosterSnapshot snapshot;
+        synchronized (lock) {
+            snapshot = manager.snapshot();
+        }
+        if (snapshot.getVersion() == version) {
+            return;
+        }
+        // Computed outside the lock, once for every subscriber
+        ClassSummary summary = snapshot.getClassSummary();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Delta delta = new Delta(latest, summary, snapshot.getVersion());
+            latest = summary;
+            version = snapshot.getVersion();
+            if (delta.isInitial() || delta.hasChanges()) {
+                for (Link link : links.values()) {
+                    link.offer(delta);
+                    link.schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * The change of the class summary between two refreshes
+     */
+    public static final class Delta {
+        private final ClassSummary previous;
+        private final ClassSummary current;
+        private final long version;
+
+        /**
+         * Constructor for a delta
+         * @param previous Summary before the change, or null for an initial delta
+         * @param current Summary after the change
+         * @param version The manager version of the current summary
+         */
+        Delta(ClassSummary previous, ClassSummary current, long version) {
+            this.previous = previous;
+            this.current = current;
+            this.version = version;
+        }
+
+        /**
+         * Combine with a later delta into one covering both
+         * @param next The delta following this one
+         * @return The combined delta
+         */
+        Delta merge(Delta next) {
+            return new Delta(previous, next.current, next.version);
+        }
+
+        /**
+         * Get the manager version this delta brings a subscriber up to
+         * @return The modification version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the class summary after the change
+         * @return The new summary
+         */
+        public ClassSummary getSummary() {
+            return current;
+        }
+
+        /**
+         * Check whether this is the first delta of a subscription, holding
+         * the full state rather than a change
+         * @return true if there is no previous state
+         */
+        public boolean isInitial() {
+            return previous == null;
+        }
+
+        /**
+         * Check whether the class average changed
+         * @return true if the average differs from the previous state
+         */
+        public boolean isAverageChanged() {
+            return previous == null || previous.getClassAverage() != current.getClassAverage();
+        }
+
+        /**
+         * Check whether the highest grade changed
+         * @return true if the highest grade differs from the previous state
+         */
+        public boolean isHighestChanged() {
+            return previous == null || previous.getClassHighest() != current.getClassHighest();
+        }
+
+        /**
+         * Check whether the lowest grade changed
+         * @return true if the lowest grade differs from the previous state
+         */
+        public boolean isLowestChanged() {
+            return previous == null || previous.getClassLowest() != current.getClassLowest();
+        }
+
+        /**
+         * Check whether a different student, or the same student with a
+         * different average, is now at the top
+         * @return true if the top student changed
+         */
+        public boolean isTopChanged() {
+            return previous == null
+                    || !sameStudent(previous.getTopStudent(), current.getTopStudent())
+                    || previous.getTopAverage() != current.getTopAverage();
+        }
+
+        /**
+         * Check whether a different student, or the same student with a
+         * different average, is now at the bottom
+         * @return true if the bottom student changed
+         */
+        public boolean isBottomChanged() {
+            return previous == null
+                    || !sameStudent(previous.getBottomStudent(), current.getBottomStudent())
+                    || previous.getBottomAverage() != current.getBottomAverage();
+        }
+
+        /**
+         * Get how many grades moved into (positive) or out of (negative)
+         * each letter. An initial delta holds the full counts.
+         * @return Changes for A, B, C, D and F
+         */
+        public long[] getLetterChanges() {
+            long[] changes = current.getLetterCounts();
+            if (previous != null) {
+                long[] before = previous.getLetterCounts();
+                for (int i = 0; i < changes.length; i++) {
+                    changes[i] -= before[i];
+                }
+            }
+            return changes;
+        }
+
+        /**
+         * Check whether anything in the summary changed
+         * @return true if any statistic or count differs from the previous state
+         */
+        public boolean hasChanges() {
+            return isAverageChanged() || isHighestChanged() || isLowestChanged()
+                    || isTopChanged() || isBottomChanged()
+                    || previous.getStudentCount() != current.getStudentCount()
+                    || previous.getGradeCount() != current.getGradeCount();
+        }
+
+        private static boolean sameStudent(Student a, Student b) {
+            return a == null ? b == null : b != null && a.getId() == b.getId();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder s = new StringBuilder(isInitial() ? "Initial" : "Delta")
+                    .append(" v").append(version).append(": ").append(current);
+            long[] changes = getLetterChanges();
+            for (int i = 0; i < changes.length; i++) {
+                if (changes[i] != 0) {
+                    s.append(' ').append(LETTERS[i]).append(changes[i] > 0 ? "+" : "").append(changes[i]);
+                }
+            }
+            return s.toString();
+        }
+    }
+
+    /**
+     * One subscriber's buffer and demand. Signals to the subscriber are
+     * made by one drain at a time on the executor.
+     */
+    private final class Link implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super Delta> subscriber;
+        private final AtomicInteger wip = new AtomicInteger();
+        // Guarded by this
+        private final ArrayDeque<Delta> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean completing;
+        private Throwable error;
+        private boolean cancelled;
+        // Only touched by the drain
+        private boolean started;
+        private boolean done;
+
+        Link(Flow.Subscriber<? super Delta> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized void offer(Delta delta) {
+            if (cancelled || completing) {
+                return;
+            }
+            if (buffer.size() == bufferSize) {
+                buffer.addLast(buffer.pollLast().merge(delta));
+            } else {
+                buffer.addLast(delta);
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            schedule();
+        }
+
+        void fail(Throwable e) {
+            synchronized (this) {
+                if (error == null) {
+                    error = e;
+                }
+                buffer.clear();
+                completing = true;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Request must be positive, was " + n));
+                return;
+            }
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            links.remove(subscriber, this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!started) {
+                    started = true;
+                    subscriber.onSubscribe(this);
+                }
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!done) {
+                Delta next;
+                Throwable failure;
+                synchronized (this) {
+                    if (cancelled) {
+                        return;
+                    }
+                    failure = error;
+                    next = failure == null && demand > 0 ? buffer.pollFirst() : null;
+                    if (next == null && !(completing && (failure != null || buffer.isEmpty()))) {
+                        return;
+                    }
+                    if (next != null && demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                }
+                if (next != null) {
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                        done = true;
+                    }
+                } else {
+                    done = true;
+                    links.remove(subscriber, this);
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class BatchRunnerTest {
+    private final GradeManager manager = new GradeManager();
+    private final StringWriter out = new StringWriter();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String script) {
+        BatchRunner runner = new BatchRunner(manager, new ReportWriter(out),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        return runner.run(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void runsEveryCommand() {
+        int status = run("ADD 1 Alice Smith\nGRADE 1 93.5 88\n# comment\nSHOW 1\nQUIT\nADD 2 Bob\n");
+        assertEquals(BatchRunner.EXIT_OK, status);
+        assertEquals(90.75, manager.findStudentById(1).getAverageGrade());
+        assertNull(manager.findStudentById(2));
+        assertTrue(out.toString().contains("Alice Smith"));
+    }
+
+    @Test
+    void reportsFailedLinesAndKeepsGoing() {
+        int status = run("ADD 1 Alice\n"
+                + "GRADE 1 0.00000000000000000000 100.000000000000000000000\n"
+                + "GRADE 1 101\n"
+                + "GRADE 2 50\n"
+                + "BOGUS\n"
+                + "GRADE 1 60\n");
+        assertEquals(BatchRunner.EXIT_FAILED_COMMANDS, status);
+        assertEquals(3, manager.findStudentById(1).getGradeCount());
+        String errors = err.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("line 3:"), errors);
+        assertTrue(errors.contains("line 4:"), errors);
+        assertTrue(errors.contains("line 5:"), errors);
+        assertEquals(3, errors.lines().count(), errors);
+    }
+
+    @Test
+    void reportsUnexpectedFailuresAsFailedLines() {
+        manager.addListener(new GradeListener() {
+            @Override
+            public void studentAdded(Student student) {
+                if (student.getId() == 2) {
+                    throw new IllegalStateException("listener broke");
+                }
+            }
+
+            @Override
+            public void gradeAdded(Student student, double grade) {
+            }
+
+            @Override
+            public void studentRemoved(Student student) {
+            }
+        });
+        int status = run("ADD 2 Bob\nADD 3 Carol\n");
+        assertEquals(BatchRunner.EXIT_FAILED_COMMANDS, status);
+        assertEquals("line 1: listener broke", err.toString(StandardCharsets.UTF_8).trim());
+        assertEquals(2, manager.getStudentCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "0", "93", "93.25", "+7.5", "-0.5", "100.", "0.1", "1.005",
+        "0.000000000000000000", "0.0000000000000000000", "0.00000000000000000000",
+        "0.00000000000000000001", "100.000000000000000000000000", "00000000000000000000000093.5",
+        "99.99999999999999", "99.999999999999999", "12345678901234567890", "9.5e1", "1E2"
+    })
+    void parsesLikeDouble(String text) {
+        assertEquals(Double.parseDouble(text), parse(text), text);
+    }
+
+    @Test
+    void parsesRandomDecimalsLikeDouble() {
+        Random random = new Random(10);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder text = new StringBuilder().append(random.nextInt(101));
+            int fraction = random.nextInt(25);
+            if (fraction > 0) {
+                text.append('.');
+                for (int d = 0; d < fraction; d++) {
+                    // Mostly zeros, so long zero-padded fractions are common
+                    text.append(random.nextInt(4) == 0 ? (char) ('0' + random.nextInt(10)) : '0');
+                }
+            }
+            String s = text.toString();
+            assertEquals(Double.parseDouble(s), parse(s), s);
+        }
+    }
+
+    @Test
+    void rejectsMalformedGrades() {
+        assertEquals(Double.doubleToLongBits(parse("abc")), Double.doubleToLongBits(Double.NaN));
+        assertEquals(Double.doubleToLongBits(parse("1.2.3")), Double.doubleToLongBits(Double.NaN));
+    }
+
+    @Test
+    void importsLongZeroPaddedFractions() throws IOException {
+        Path file = dir.resolve("grades.csv");
+        Files.writeString(file, "1,Alice,0.00000000000000000000\n1,Alice,90.000000000000000000000\n2,Bob,75\n");
+        GradeManager manager = new GradeManager();
+        BulkImporter.ImportResult result = new BulkImporter().importFile(file, manager);
+        assertEquals(0, result.getRejectedRows());
+        assertEquals(3, result.getGradesAdded());
+        assertEquals(45.0, manager.findStudentById(1).getAverageGrade());
+        assertEquals(75.0, manager.findStudentById(2).getAverageGrade());
+    }
+
+    private static double parse(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return BulkImporter.parseGrade(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
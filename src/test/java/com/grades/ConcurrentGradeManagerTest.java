@@ -0,0 +1,166 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentGradeManagerTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int STUDENTS = 500;
+    private static final int GRADES_PER_WRITER = 50_000;
+
+    /**
+     * Writers add grades whose values are known per student while readers
+     * query averages and summaries; every reading must be one a student
+     * could have had, and the final counts and averages must be exact
+     */
+    @Test
+    void writersAndReadersAgreeOnFinalState() throws Exception {
+        ConcurrentGradeManager manager = new ConcurrentGradeManager();
+        for (int id = 0; id < STUDENTS; id++) {
+            manager.addStudent(new Student("S" + id, id));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(new Thread(() -> run(failure, start, () -> {
+                for (int i = 0; i < GRADES_PER_WRITER; i++) {
+                    int id = (i * WRITERS + writer) % STUDENTS;
+                    // Every grade of a student is the same, so any consistent read equals it
+                    double grade = id % 101;
+                    if (i % 2 == 0) {
+                        assertTrue(manager.addGrade(id, grade));
+                    } else {
+                        manager.findStudentById(id).addGrade(grade);
+                    }
+                }
+            })));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> run(failure, start, () -> {
+                int id = 0;
+                while (writing.get()) {
+                    double average = manager.getAverageGrade(id);
+                    assertTrue(average == 0.0 || average == id % 101, "average " + average + " of " + id);
+                    ClassSummary summary = manager.getClassSummary();
+                    assertEquals(STUDENTS, summary.getStudentCount());
+                    assertTrue(summary.getClassHighest() <= 100.0);
+                    id = (id + 37) % STUDENTS;
+                }
+            })));
+        }
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : writers) {
+            t.join();
+        }
+        writing.set(false);
+        for (Thread t : readers) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        long total = (long) WRITERS * GRADES_PER_WRITER;
+        assertEquals(total, manager.getTotalGradeCount());
+        long counted = 0;
+        double averageSum = 0;
+        for (int id = 0; id < STUDENTS; id++) {
+            Student s = manager.findStudentById(id);
+            assertEquals(total / STUDENTS, s.getGradeCount());
+            assertEquals(id % 101, s.getAverageGrade(), 0.0);
+            counted += s.getGradeCount();
+            averageSum += id % 101;
+        }
+        assertEquals(total, counted);
+        ClassSummary summary = manager.getClassSummary();
+        assertEquals(averageSum / STUDENTS, summary.getClassAverage(), 1e-9);
+        assertEquals(total, summary.getGradeCount());
+    }
+
+    /**
+     * Writers keep one stripe write-locked almost all the time; readers of
+     * that stripe must still finish by falling back to the read lock
+     */
+    @Test
+    void readersFinishWhileWritersHoldTheStripe() throws Exception {
+        ConcurrentGradeManager manager = new ConcurrentGradeManager();
+        manager.addStudent(new Student("S", 7));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(new Thread(() -> run(failure, start, () -> {
+                while (writing.get()) {
+                    manager.addGrade(7, 70.0);
+                }
+            })));
+        }
+        writers.forEach(Thread::start);
+        start.countDown();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                for (int i = 0; i < 20_000; i++) {
+                    double average = manager.getAverageGrade(7);
+                    assertTrue(average == 0.0 || average == 70.0, "average " + average);
+                    assertEquals(1, manager.getClassSummary().getStudentCount());
+                }
+            });
+        } finally {
+            writing.set(false);
+            for (Thread t : writers) {
+                t.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(manager.getTotalGradeCount(), manager.findStudentById(7).getGradeCount());
+    }
+
+    @Test
+    void studentBelongsToOneManager() {
+        ConcurrentGradeManager manager = new ConcurrentGradeManager();
+        Student student = new Student("S", 1);
+        manager.addStudent(student);
+        assertThrows(IllegalArgumentException.class, () -> new GradeManager().addStudent(student));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentGradeManager().addStudent(student));
+
+        student.addGrade(80);
+        assertEquals(1, manager.getTotalGradeCount());
+        assertTrue(manager.removeStudent(1));
+        assertFalse(manager.removeStudent(1));
+        GradeManager other = new GradeManager();
+        other.addStudent(student);
+        student.addGrade(90);
+        assertEquals(0, manager.getTotalGradeCount());
+        assertEquals(2, other.getTotalGradeCount());
+    }
+
+    private static void run(AtomicReference<Throwable> failure, CountDownLatch start, Runnable body) {
+        try {
+            start.await();
+            body.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class GradeArchiveTest {
+    @TempDir
+    Path dir;
+
+    private static byte[] archive(GradeManager manager, boolean compress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GradeArchive.write(manager, out, compress);
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void roundTripsEveryStudentAndGrade(boolean compress) throws IOException {
+        // Enough students for several blocks, with extreme IDs
+        GradeManager original = Rosters.random(11, 40000);
+        if (original.findStudentById(Integer.MIN_VALUE) == null) {
+            original.addStudent(new Student("Min", Integer.MIN_VALUE));
+        }
+        if (original.findStudentById(Integer.MAX_VALUE) == null) {
+            original.addStudent(new Student("Max", Integer.MAX_VALUE));
+        }
+        GradeManager restored = new GradeManager();
+        long read = GradeArchive.read(new ByteArrayInputStream(archive(original, compress)), restored);
+        assertEquals(original.getStudentCount(), read);
+        Rosters.assertSameRoster(original, restored);
+    }
+
+    @Test
+    void roundTripsEmptyRosterThroughFile() throws IOException {
+        Path file = dir.resolve("empty.grda");
+        GradeArchive.write(new GradeManager(), file, true);
+        assertTrue(GradeArchive.isArchive(file));
+        assertEquals(0, GradeArchive.read(file, new GradeManager()));
+    }
+
+    @Test
+    void csvIsNotAnArchive() throws IOException {
+        Path file = dir.resolve("grades.csv");
+        Files.writeString(file, "1,Alice,90\n");
+        assertFalse(GradeArchive.isArchive(file));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rejectsCorruptAndTruncatedArchives(boolean compress) throws IOException {
+        byte[] bytes = archive(Rosters.random(12, 5000), compress);
+        Random random = new Random(12);
+        for (int trial = 0; trial < 100; trial++) {
+            byte[] flipped = bytes.clone();
+            flipped[random.nextInt(flipped.length)] ^= (byte) (1 + random.nextInt(255));
+            assertThrows(IOException.class,
+                    () -> GradeArchive.read(new ByteArrayInputStream(flipped), new GradeManager()));
+            byte[] truncated = Arrays.copyOf(bytes, random.nextInt(bytes.length));
+            assertThrows(IOException.class,
+                    () -> GradeArchive.read(new ByteArrayInputStream(truncated), new GradeManager()));
+        }
+    }
+
+    @Test
+    void rejectsNegativeHundredths() throws IOException {
+        // One student whose only grade is a ten-byte varint of -1, in a
+        // block with a valid checksum
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        raw.write(new byte[] {(byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08});
+        raw.write(new byte[] {1, 'A', 5});
+        for (int i = 0; i < 9; i++) {
+            raw.write(0xFF);
+        }
+        raw.write(1);
+        byte[] block = raw.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(block);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x47524441);
+        out.writeByte(1);
+        out.writeByte(0);
+        out.writeLong(1);
+        out.writeInt(1);
+        out.writeInt(block.length);
+        out.writeInt(block.length);
+        out.writeInt((int) crc.getValue());
+        out.write(block);
+        out.writeInt(0);
+        IOException e = assertThrows(IOException.class,
+                () -> GradeArchive.read(new ByteArrayInputStream(bytes.toByteArray()), new GradeManager()));
+        assertEquals("Damaged archive: grade out of range", e.getMessage());
+    }
+
+    @Test
+    void rejectsStudentAlreadyLoaded() throws IOException {
+        GradeManager original = new GradeManager();
+        original.addStudent(new Student("Alice", 17));
+        GradeManager target = new GradeManager();
+        target.addStudent(new Student("Other", 17));
+        byte[] bytes = archive(original, true);
+        assertThrows(IOException.class, () -> GradeArchive.read(new ByteArrayInputStream(bytes), target));
+    }
+}
@@ -0,0 +1,230 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GradeHistoryTest {
+    private static final long DAY = 86_400_000L;
+
+    /**
+     * Random grades, removals and terms, some defined after their grades,
+     * checked against averages recomputed from every grade
+     */
+    @Test
+    void matchesRecomputationUnderRandomChanges() {
+        Random random = new Random(25);
+        GradeHistory history = new GradeHistory();
+        Map<Integer, List<long[]>> times = new HashMap<>();
+        Map<Integer, List<Double>> grades = new HashMap<>();
+        // Ten consecutive terms of 200 time units, defined in random order
+        List<Integer> undefined = new ArrayList<>();
+        for (int t = 0; t < 10; t++) {
+            undefined.add(t);
+        }
+        Collections.shuffle(undefined, random);
+        List<long[]> terms = new ArrayList<>();
+        long now = 0;
+        for (int step = 0; step < 30_000; step++) {
+            now += random.nextInt(3) == 0 ? 1 : 0;
+            int id = random.nextInt(150);
+            int op = random.nextInt(40);
+            if (op == 0) {
+                boolean had = times.remove(id) != null;
+                grades.remove(id);
+                assertEquals(had, history.removeStudent(id));
+            } else if (op == 1 && !undefined.isEmpty()) {
+                int t = undefined.remove(undefined.size() - 1);
+                history.defineTerm("T" + t, t * 200L, t * 200L + 200);
+                terms.add(new long[] {t, t * 200L, t * 200L + 200});
+            } else {
+                // Whole and awkward grades, so equal and inexact sums both occur
+                double grade = random.nextBoolean() ? random.nextInt(5) * 25 : random.nextInt(1001) / 10.0;
+                history.addGrade(id, now, grade);
+                times.computeIfAbsent(id, k -> new ArrayList<>()).add(new long[] {now});
+                grades.computeIfAbsent(id, k -> new ArrayList<>()).add(grade);
+            }
+            if (step % 500 == 499) {
+                check(history, times, grades, terms, random, now);
+            }
+        }
+        check(history, times, grades, terms, random, now);
+    }
+
+    private static void check(GradeHistory history, Map<Integer, List<long[]>> times,
+                              Map<Integer, List<Double>> grades, List<long[]> terms, Random random, long now) {
+        long total = 0;
+        for (List<Double> g : grades.values()) {
+            total += g.size();
+        }
+        assertEquals(total, history.getGradeCount());
+        for (int i = 0; i < 20; i++) {
+            // Bounds on grade times, so the half-open ends are exercised
+            long from = random.nextInt((int) now + 2);
+            long to = from + random.nextInt(100);
+            for (int id : times.keySet()) {
+                assertEquals(count(times, id, from, to), history.getGradeCount(id, from, to));
+                assertEquals(average(times, grades, id, from, to), history.getAverage(id, from, to), 1e-9);
+            }
+            assertEquals(classAverage(times, grades, from, to), history.getClassAverage(from, to), 1e-9);
+            assertEquals(classAverage(times, grades, Long.MIN_VALUE, to), history.getClassAverageAsOf(to), 1e-9);
+        }
+        List<String> names = history.getTerms();
+        assertEquals(terms.size(), names.size());
+        for (long[] term : terms) {
+            String name = "T" + term[0];
+            int students = 0;
+            long count = 0;
+            double sum = 0;
+            for (int id : times.keySet()) {
+                int n = count(times, id, term[1], term[2]);
+                if (n > 0) {
+                    students++;
+                    count += n;
+                    sum += average(times, grades, id, term[1], term[2]);
+                }
+                assertEquals(average(times, grades, id, term[1], term[2]), history.getTermAverage(id, name), 1e-9);
+            }
+            assertEquals(students, history.getClassTermStudentCount(name));
+            assertEquals(count, history.getClassTermGradeCount(name));
+            assertEquals(students == 0 ? 0.0 : sum / students, history.getClassTermAverage(name), 1e-9);
+        }
+        for (int id : times.keySet()) {
+            double[] trend = history.getTermTrend(id);
+            for (int i = 0; i < names.size(); i++) {
+                long t = Long.parseLong(names.get(i).substring(1));
+                assertEquals(average(times, grades, id, t * 200, t * 200 + 200), trend[i], 1e-9);
+            }
+        }
+    }
+
+    private static int count(Map<Integer, List<long[]>> times, int id, long from, long to) {
+        int n = 0;
+        for (long[] time : times.get(id)) {
+            if (time[0] >= from && time[0] < to) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static double average(Map<Integer, List<long[]>> times, Map<Integer, List<Double>> grades,
+                                  int id, long from, long to) {
+        double sum = 0;
+        int n = 0;
+        for (int i = 0; i < times.get(id).size(); i++) {
+            long time = times.get(id).get(i)[0];
+            if (time >= from && time < to) {
+                sum += grades.get(id).get(i);
+                n++;
+            }
+        }
+        return n == 0 ? 0.0 : sum / n;
+    }
+
+    private static double classAverage(Map<Integer, List<long[]>> times, Map<Integer, List<Double>> grades,
+                                       long from, long to) {
+        double sum = 0;
+        int students = 0;
+        for (int id : times.keySet()) {
+            if (count(times, id, from, to) > 0) {
+                sum += average(times, grades, id, from, to);
+                students++;
+            }
+        }
+        return students == 0 ? 0.0 : sum / students;
+    }
+
+    @Test
+    void termRollupDoesNotDrift() {
+        GradeHistory history = new GradeHistory();
+        history.defineTerm("Fall", 0, Long.MAX_VALUE);
+        Random random = new Random(7);
+        for (int i = 0; i < 300_000; i++) {
+            history.addGrade(i % 3, i, random.nextInt(1001) / 10.0);
+        }
+        double expected = 0;
+        for (int id = 0; id < 3; id++) {
+            expected += history.getTermAverage(id, "Fall");
+        }
+        assertEquals(expected / 3, history.getClassTermAverage("Fall"), 1e-12);
+
+        // Once every student is gone the rollup starts again from nothing
+        for (int id = 0; id < 3; id++) {
+            history.removeStudent(id);
+        }
+        assertEquals(0.0, history.getClassTermAverage("Fall"));
+        history.addGrade(9, 1_000_000, 33.3);
+        assertEquals(33.3, history.getClassTermAverage("Fall"));
+    }
+
+    @Test
+    void gradesOfAddedStudentsHaveNoTime() {
+        MutableClock clock = new MutableClock(100 * DAY);
+        GradeHistory history = new GradeHistory(clock);
+        history.defineTerm("Fall", 90 * DAY, 120 * DAY);
+        GradeManager manager = new GradeManager();
+        manager.addListener(history);
+        // As a replayed journal or an opened snapshot adds them
+        Student alice = new Student("Alice", 1);
+        alice.addGrade(60);
+        alice.addGrade(80);
+        manager.addStudent(alice);
+
+        long now = clock.millis();
+        assertEquals(2, history.getGradeCount());
+        assertEquals(0, history.getGradeCount(1, now - 30 * DAY, now + 1));
+        assertEquals(0, history.getClassTermStudentCount("Fall"));
+        assertEquals(70.0, history.getAverageAsOf(1, now), 0.0);
+
+        clock.advance(DAY);
+        manager.addGrade(1, 100);
+        assertEquals(1, history.getGradeCount(1, now - 30 * DAY, clock.millis() + 1));
+        assertEquals(100.0, history.getTermAverage(1, "Fall"), 0.0);
+        assertArrayEquals(new double[] {100.0}, history.getTermTrend(1), 0.0);
+        assertEquals(80.0, history.getAverageAsOf(1, clock.millis() + 1), 1e-12);
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long by) {
+            millis += by;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
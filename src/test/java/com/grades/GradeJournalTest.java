@@ -0,0 +1,185 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GradeJournalTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Apply the same random changes to a journaled manager and a reference
+     */
+    private static void randomChanges(long seed, int changes, GradeManager journaled, GradeManager reference) {
+        Random random = new Random(seed);
+        for (int k = 0; k < changes; k++) {
+            int id = random.nextInt(500);
+            int op = random.nextInt(20);
+            if (op < 3) {
+                if (reference.findStudentById(id) == null) {
+                    Student a = new Student("S" + id, id);
+                    Student b = new Student("S" + id, id);
+                    if (op == 0) {
+                        a.addGrade(42.5);
+                        b.addGrade(42.5);
+                    }
+                    reference.addStudent(a);
+                    journaled.addStudent(b);
+                }
+            } else if (op == 3) {
+                assertEquals(reference.removeStudent(id), journaled.removeStudent(id));
+            } else if (op == 4) {
+                int[] ids = {id, random.nextInt(500), id};
+                double[] grades = {Rosters.grade(random, 1), Rosters.grade(random, 2), 101};
+                reference.addGrades(ids, grades);
+                journaled.addGrades(ids, grades);
+            } else {
+                double grade = Rosters.grade(random, op % 3);
+                assertEquals(reference.addGrade(id, grade), journaled.addGrade(id, grade));
+            }
+        }
+    }
+
+    @Test
+    void replaysLogAfterReopen() throws IOException {
+        GradeManager reference = new GradeManager();
+        GradeManager manager = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, manager)) {
+            randomChanges(1, 5000, manager, reference);
+        }
+        GradeManager restored = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, restored)) {
+            Rosters.assertSameRoster(reference, restored);
+        }
+    }
+
+    @Test
+    void replaysSnapshotAndLogTailAcrossCheckpoints() throws IOException {
+        GradeManager reference = new GradeManager();
+        GradeManager manager = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, manager, 700)) {
+            randomChanges(2, 5000, manager, reference);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(p -> p.getFileName().toString().startsWith("snapshot-")).count());
+        }
+        // Keep going after a restart, then restore again
+        GradeManager reopened = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, reopened, 700)) {
+            Rosters.assertSameRoster(reference, reopened);
+            randomChanges(3, 3000, reopened, reference);
+        }
+        GradeManager restored = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, restored, 700)) {
+            Rosters.assertSameRoster(reference, restored);
+        }
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        GradeManager manager = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, manager)) {
+            manager.addStudent(new Student("Alice", 1));
+            manager.addGrade(1, 90);
+        }
+        Path log;
+        try (Stream<Path> files = Files.list(dir)) {
+            log = files.filter(p -> p.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        // A record header promising more bytes than were written
+        Files.write(log, new byte[] {0, 0, 0, 20, 1, 2, 3, 4, 2, 0}, StandardOpenOption.APPEND);
+        GradeManager restored = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, restored)) {
+            assertEquals(1, restored.getStudentCount());
+            assertEquals(90.0, restored.findStudentById(1).getAverageGrade());
+            assertNull(restored.findStudentById(2));
+            restored.addGrade(1, 70);
+        }
+        // The tail was cut off, so the log is intact once a newer one follows
+        GradeManager again = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, again)) {
+            assertEquals(80.0, again.findStudentById(1).getAverageGrade());
+        }
+    }
+
+    @Test
+    void damagedOlderLogFailsOpen() throws IOException {
+        GradeManager manager = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, manager)) {
+            manager.addStudent(new Student("Alice", 1));
+            manager.addGrade(1, 90);
+        }
+        GradeManager reopened = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, reopened)) {
+            reopened.addGrade(1, 80);
+        }
+        Path oldest;
+        try (Stream<Path> files = Files.list(dir)) {
+            oldest = files.filter(p -> p.getFileName().toString().startsWith("wal-")).sorted().findFirst().orElseThrow();
+        }
+        // Flip a byte of the last record's payload
+        byte[] bytes = Files.readAllBytes(oldest);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(oldest, bytes);
+        assertThrows(IOException.class, () -> GradeJournal.open(dir, new GradeManager()));
+    }
+
+    @Test
+    void burstBeyondThePendingCapIsKept() throws IOException {
+        GradeManager manager = new GradeManager();
+        GradeManager reference = new GradeManager();
+        int students = 1000;
+        try (GradeJournal journal = GradeJournal.open(dir, manager)) {
+            for (int id = 0; id < students; id++) {
+                manager.addStudent(new Student("S" + id, id));
+                reference.addStudent(new Student("S" + id, id));
+            }
+            // Each grade record is 21 bytes, so this is twice the cap
+            int grades = 2 * GradeJournal.MAX_PENDING / 21;
+            for (int i = 0; i < grades; i++) {
+                manager.addGrade(i % students, i % 101);
+                reference.addGrade(i % students, i % 101);
+            }
+        }
+        GradeManager restored = new GradeManager();
+        try (GradeJournal journal = GradeJournal.open(dir, restored)) {
+            Rosters.assertSameRoster(reference, restored);
+        }
+    }
+
+    @Test
+    void failedCheckpointStopsChangesAndLosesNothing() throws IOException {
+        // A directory where the first snapshot's temporary file goes makes the checkpoint fail
+        Path blocker = dir.resolve("snapshot-0000000000000000.bin.tmp");
+        Files.createDirectories(blocker);
+        Files.write(blocker.resolve("keep"), new byte[1]);
+        GradeManager manager = new GradeManager();
+        GradeJournal journal = GradeJournal.open(dir, manager, 10);
+        for (int id = 0; id < 10; id++) {
+            manager.addStudent(new Student("S" + id, id));
+        }
+        assertThrows(IllegalStateException.class, () -> manager.addStudent(new Student("Late", 10)));
+        assertThrows(IllegalStateException.class, () -> manager.addGrade(0, 50));
+        assertThrows(IllegalStateException.class, () -> manager.removeStudent(0));
+        assertEquals(10, manager.getStudentCount());
+        assertEquals(0, manager.getTotalGradeCount());
+        assertThrows(IOException.class, journal::close);
+
+        Files.delete(blocker.resolve("keep"));
+        Files.delete(blocker);
+        GradeManager restored = new GradeManager();
+        try (GradeJournal reopened = GradeJournal.open(dir, restored)) {
+            Rosters.assertSameRoster(manager, restored);
+        }
+    }
+}
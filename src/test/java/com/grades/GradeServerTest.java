@@ -0,0 +1,109 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GradeServerTest {
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private GradeManager manager;
+    private GradeServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        manager = new GradeManager();
+        server = new GradeServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .timeout(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void idleStreamsDoNotStarveOtherEndpoints() throws Exception {
+        // More open streams than the fixed worker pool has threads
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            HttpResponse<InputStream> response = client.send(request("/summary/stream").build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, response.statusCode());
+            streams.add(response.body());
+        }
+        HttpResponse<String> added = client.send(request("/students")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"id\":17,\"name\":\"Alice\"}")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, added.statusCode());
+        HttpResponse<String> summary = client.send(request("/summary").build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, summary.statusCode());
+        assertTrue(summary.body().contains("\"studentCount\":1"), summary.body());
+        for (InputStream stream : streams) {
+            stream.close();
+        }
+    }
+
+    @Test
+    void deeplyNestedBodyIsABadRequest() throws Exception {
+        HttpResponse<String> response = client.send(request("/grades")
+                .POST(HttpRequest.BodyPublishers.ofString("[".repeat(50_000))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void refusedChangesAreServiceUnavailable() throws Exception {
+        assertEquals(201, post("/students", "{\"id\":17,\"name\":\"Alice\"}").statusCode());
+        manager.fail(new IOException("disk full"));
+
+        HttpResponse<String> added = post("/students", "{\"id\":18,\"name\":\"Bob\"}");
+        assertEquals(503, added.statusCode());
+        assertTrue(added.body().startsWith("{\"error\":") && added.body().contains("disk full"), added.body());
+        assertEquals(503, post("/students/17/grades", "{\"grade\":90}").statusCode());
+        assertEquals(503, post("/grades", "[{\"id\":17,\"grade\":90}]").statusCode());
+        HttpResponse<String> removed = client.send(request("/students/17").DELETE().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(503, removed.statusCode());
+        // Reads still work
+        HttpResponse<String> student = client.send(request("/students/17").build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, student.statusCode());
+    }
+
+    @Test
+    void onlyStudentPathsReachTheStudentHandler() throws Exception {
+        assertEquals(201, post("/students", "{\"id\":5,\"name\":\"Alice\"}").statusCode());
+        assertEquals(404, get("/studentsX/5").statusCode());
+        assertEquals(404, post("/studentsX", "{\"id\":6,\"name\":\"Bob\"}").statusCode());
+        assertEquals(404, get("/students/").statusCode());
+        assertEquals(404, get("/students/5/other").statusCode());
+        assertEquals(200, get("/students/5").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(request(path).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(request(path).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,32 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+    @Test
+    void parsesRequestBodies() {
+        assertEquals(Map.of("id", 17.0, "name", "Alice"), Json.parse("{\"id\":17,\"name\":\"Alice\"}"));
+        assertEquals(List.of(Map.of("id", 1.0, "grade", 93.5)), Json.parse("[{\"id\":1,\"grade\":93.5}]"));
+    }
+
+    @Test
+    void acceptsNestingUpToTheLimit() {
+        Json.parse("[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH));
+        // Depth is released on the way out, so siblings do not add up
+        String inner = "[".repeat(Json.MAX_DEPTH - 1) + "]".repeat(Json.MAX_DEPTH - 1);
+        Json.parse("[" + inner + "," + inner + "," + inner + "]");
+    }
+
+    @Test
+    void refusesDeepNestingInsteadOfOverflowing() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Json.parse("[".repeat(Json.MAX_DEPTH + 1) + "]".repeat(Json.MAX_DEPTH + 1)));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[".repeat(100_000)));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":".repeat(100_000)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryStudentAndGrade() throws IOException {
+        GradeManager original = Rosters.random(7, 3000);
+        Path file = dir.resolve("roster.bin");
+        MappedSnapshot.write(original, file);
+        Rosters.assertSameRoster(original, MappedSnapshot.open(file));
+    }
+
+    @Test
+    void summaryOfLazilyLoadedRosterMatches() throws IOException {
+        GradeManager original = Rosters.random(8, 2000);
+        Path file = dir.resolve("roster.bin");
+        MappedSnapshot.write(original, file);
+        GradeManager opened = MappedSnapshot.open(file);
+        ClassSummary expected = original.getClassSummary();
+        ClassSummary actual = opened.getClassSummary();
+        assertEquals(expected.getClassAverage(), actual.getClassAverage(), 1e-9);
+        assertEquals(expected.getClassHighest(), actual.getClassHighest());
+        assertEquals(expected.getClassLowest(), actual.getClassLowest());
+        assertEquals(expected.getTopStudent().getId(), actual.getTopStudent().getId());
+    }
+
+    @Test
+    void classQueriesLeaveStudentsUnbuilt() throws IOException {
+        GradeManager original = Rosters.random(10, 3000);
+        Path file = dir.resolve("roster.bin");
+        MappedSnapshot.write(original, file);
+        GradeManager opened = MappedSnapshot.open(file);
+        int count = opened.getStudentCount();
+        assertEquals(count, opened.getUnloadedCount());
+
+        ClassSummary expected = original.getClassSummary();
+        ClassSummary actual = opened.getClassSummary();
+        assertEquals(expected.getClassAverage(), opened.getClassAverage(), 1e-9);
+        assertEquals(expected.getClassHighest(), opened.getClassHighest());
+        assertEquals(expected.getClassLowest(), opened.getClassLowest());
+        assertEquals(expected.getTopStudent().getId(), opened.getTopStudent().getId());
+        assertEquals(expected.getBottomStudent().getId(), opened.getBottomStudent().getId());
+        assertEquals(expected.getMedianGrade(), actual.getMedianGrade());
+        assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1e-9);
+        assertEquals(original.getClassPercentile(90), opened.getClassPercentile(90));
+        List<String> expectedRows = rows(original.snapshot());
+        assertEquals(expectedRows, rows(opened.snapshot()));
+        assertEquals(expectedRows.size(), opened.snapshot().getClassSummary().getStudentCount());
+        // Only the top and bottom student were built
+        assertEquals(count - 2, opened.getUnloadedCount());
+
+        assertEquals(original.getRank(expected.getTopStudent().getId()), opened.getRank(expected.getTopStudent().getId()));
+        List<Student> top = opened.getTopStudents(5);
+        List<Student> wanted = original.getTopStudents(5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(wanted.get(i).getId(), top.get(i).getId());
+        }
+        assertTrue(opened.getUnloadedCount() >= count - 7);
+    }
+
+    private static List<String> rows(RosterSnapshot snapshot) {
+        List<String> rows = new ArrayList<>();
+        snapshot.forEachStudent(ReportWriter.SortOrder.NAME, 0, Integer.MAX_VALUE,
+                (id, name, gradeCount, average, highest, lowest) ->
+                        rows.add(id + " " + name + " " + gradeCount + " " + average + " " + highest + " " + lowest));
+        return rows;
+    }
+
+    @Test
+    void openedRosterAcceptsChanges() throws IOException {
+        GradeManager original = Rosters.random(9, 500);
+        Path file = dir.resolve("roster.bin");
+        MappedSnapshot.write(original, file);
+        GradeManager opened = MappedSnapshot.open(file);
+        int[] ids = new int[2];
+        int[] n = {0};
+        original.forEachStudent(s -> {
+            if (n[0] < 2) {
+                ids[n[0]++] = s.getId();
+            }
+        });
+        assertTrue(opened.removeStudent(ids[0]));
+        original.removeStudent(ids[0]);
+        opened.addGrade(ids[1], 77);
+        original.addGrade(ids[1], 77);
+        opened.addStudent(new Student("New", 123456789));
+        original.addStudent(new Student("New", 123456789));
+        Rosters.assertSameRoster(original, opened);
+    }
+
+    @Test
+    void rejectsDamagedFile() throws IOException {
+        Path file = dir.resolve("roster.bin");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> MappedSnapshot.open(file));
+    }
+}
@@ -0,0 +1,50 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ReportWriterTest {
+    @ParameterizedTest
+    @ValueSource(doubles = {
+        0.0, -0.0, 0.004, 0.005, 0.045, 0.05, 0.125, 1.005, 1.115, 2.675, 8.345, 1.0049999999999999,
+        33.333333333333336, 66.66666666666667, 89.995, 99.95, 99.995, 99.99999999, 100.0, -0.004, -0.005, -1.005
+    })
+    void matchesStringFormatOnEdgeValues(double value) {
+        assertFormatted(value);
+    }
+
+    @Test
+    void matchesStringFormatOnTiesAndRandomValues() {
+        for (int hundredths = 0; hundredths <= 10_000; hundredths++) {
+            // Every tie at the third and second decimal, and its neighbours
+            double tie = (hundredths * 10 + 5) / 1000.0;
+            assertFormatted(tie);
+            assertFormatted(Math.nextUp(tie));
+            assertFormatted(Math.nextDown(tie));
+            assertFormatted((hundredths * 10 + 5) / 100.0);
+        }
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            assertFormatted(random.nextDouble() * 100);
+            // Averages of a few whole grades, as the report prints them
+            int count = 1 + random.nextInt(12);
+            int sum = 0;
+            for (int g = 0; g < count; g++) {
+                sum += random.nextInt(101);
+            }
+            assertFormatted((double) sum / count);
+        }
+    }
+
+    private static void assertFormatted(double value) {
+        for (int decimals = 1; decimals <= 2; decimals++) {
+            StringBuilder sb = new StringBuilder();
+            ReportWriter.fixed(sb, value, decimals, 8);
+            assertEquals(String.format("%8." + decimals + "f", value), sb.toString(), Double.toString(value));
+        }
+    }
+}
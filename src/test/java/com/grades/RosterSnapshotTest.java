@@ -0,0 +1,128 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RosterSnapshotTest {
+    /**
+     * Snapshots taken between random changes, including removals that
+     * empty and compact slots, keep showing the roster as it was
+     */
+    @Test
+    void snapshotsDoNotSeeLaterChanges() {
+        Random random = new Random(21);
+        GradeManager manager = new GradeManager();
+        List<RosterSnapshot> snapshots = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int step = 0; step < 30_000; step++) {
+            int id = random.nextInt(2000);
+            int op = random.nextInt(10);
+            if (op < 4) {
+                if (manager.findStudentById(id) == null) {
+                    manager.addStudent(new Student("S" + id, id));
+                }
+            } else if (op < 7) {
+                manager.removeStudent(id);
+            } else {
+                manager.addGrade(id, Rosters.grade(random, op % 3));
+            }
+            if (step % 500 == 0) {
+                RosterSnapshot snapshot = manager.snapshot();
+                snapshots.add(snapshot);
+                expected.add(rows(snapshot));
+                assertEquals(scan(manager), expected.get(expected.size() - 1));
+            }
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expected.get(i), rows(snapshots.get(i)), "snapshot " + i);
+        }
+    }
+
+    @Test
+    void unchangedManagerReusesItsSnapshot() {
+        GradeManager manager = new GradeManager();
+        manager.addStudent(new Student("Alice", 1));
+        RosterSnapshot first = manager.snapshot();
+        assertSame(first, manager.snapshot());
+        manager.removeStudent(1);
+        assertEquals(1, first.getStudentCount());
+        assertEquals(List.of("1 Alice 0"), rows(first));
+        assertEquals(0, manager.snapshot().getStudentCount());
+    }
+
+    /**
+     * Pages of every sorted order, read in any sequence, line up with the
+     * whole roster sorted by the order's rules. Whole grades make equal
+     * averages common and IDs include negative ones.
+     */
+    @Test
+    void sortedPagesSliceOneOrder() {
+        Random random = new Random(42);
+        GradeManager manager = new GradeManager();
+        for (int i = 0; i < 3000; i++) {
+            int id = random.nextInt(20_000) - 10_000;
+            if (manager.findStudentById(id) == null) {
+                String name = (random.nextBoolean() ? "s" : "S") + random.nextInt(500);
+                manager.addStudent(new Student(name, id));
+                for (int g = random.nextInt(3); g > 0; g--) {
+                    manager.addGrade(id, random.nextInt(5) * 25);
+                }
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            manager.removeStudent(random.nextInt(20_000) - 10_000);
+        }
+        RosterSnapshot snapshot = manager.snapshot();
+        List<Student> students = manager.getAllStudents();
+        Comparator<Student> byId = Comparator.comparingInt(Student::getId);
+        Map<ReportWriter.SortOrder, Comparator<Student>> orders = new EnumMap<>(ReportWriter.SortOrder.class);
+        orders.put(ReportWriter.SortOrder.ID, byId);
+        orders.put(ReportWriter.SortOrder.NAME,
+                Comparator.comparing(Student::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(byId));
+        orders.put(ReportWriter.SortOrder.AVERAGE_DESC,
+                Comparator.comparingDouble(Student::getAverageGrade).reversed().thenComparing(byId));
+        orders.put(ReportWriter.SortOrder.AVERAGE_ASC,
+                Comparator.comparingDouble(Student::getAverageGrade).thenComparing(byId.reversed()));
+        for (Map.Entry<ReportWriter.SortOrder, Comparator<Student>> order : orders.entrySet()) {
+            List<Integer> expected = new ArrayList<>();
+            students.stream().sorted(order.getValue()).forEach(s -> expected.add(s.getId()));
+            // Last page first, so the order is built for a page in the middle
+            List<List<Integer>> pages = new ArrayList<>();
+            for (int offset = (expected.size() / 7) * 7; offset >= 0; offset -= 7) {
+                List<Integer> page = new ArrayList<>();
+                snapshot.forEachStudent(order.getKey(), offset, 7, (id, name, count, average, highest, lowest) ->
+                        page.add(id));
+                pages.add(0, page);
+            }
+            List<Integer> paged = new ArrayList<>();
+            pages.forEach(paged::addAll);
+            assertEquals(expected, paged, order.getKey().toString());
+            List<Integer> whole = new ArrayList<>();
+            snapshot.forEachStudent(order.getKey(), 0, Integer.MAX_VALUE, (id, name, count, average, highest, lowest) ->
+                    whole.add(id));
+            assertEquals(expected, whole, order.getKey().toString());
+        }
+    }
+
+    private static List<String> rows(RosterSnapshot snapshot) {
+        List<String> rows = new ArrayList<>();
+        snapshot.forEachStudent((id, name, count, average, highest, lowest) ->
+                rows.add(id + " " + name + " " + count + (count > 0 ? " " + average + " " + highest + " " + lowest : "")));
+        return rows;
+    }
+
+    private static List<String> scan(GradeManager manager) {
+        List<String> rows = new ArrayList<>();
+        manager.forEachStudent(s -> rows.add(s.getId() + " " + s.getName() + " " + s.getGradeCount()
+                + (s.getGradeCount() > 0 ? " " + s.getAverageGrade() + " " + s.getHighestGrade() + " " + s.getLowestGrade() : "")));
+        return rows;
+    }
+}
@@ -0,0 +1,65 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Random;
+
+/**
+ * Helpers for building random rosters and comparing two managers
+ */
+final class Rosters {
+    private Rosters() {
+    }
+
+    /**
+     * Build a roster whose grades mix whole points, hundredths and full doubles
+     */
+    static GradeManager random(long seed, int students) {
+        Random random = new Random(seed);
+        GradeManager manager = new GradeManager();
+        for (int i = 0; i < students; i++) {
+            int id = random.nextInt();
+            if (manager.findStudentById(id) != null) {
+                continue;
+            }
+            Student student = new Student(i % 5 == 0 ? "Zoë Müller " + i : "Student " + i, id);
+            int grades = random.nextInt(12);
+            for (int g = 0; g < grades; g++) {
+                student.addGrade(grade(random, i % 3));
+            }
+            manager.addStudent(student);
+        }
+        return manager;
+    }
+
+    static double grade(Random random, int kind) {
+        switch (kind) {
+            case 0:
+                return random.nextInt(101);
+            case 1:
+                return random.nextInt(10001) / 100.0;
+            default:
+                return random.nextDouble() * 100;
+        }
+    }
+
+    /**
+     * Assert that two managers hold the same students with the same grades
+     */
+    static void assertSameRoster(GradeManager expected, GradeManager actual) {
+        assertEquals(expected.getStudentCount(), actual.getStudentCount(), "student count");
+        assertEquals(expected.getTotalGradeCount(), actual.getTotalGradeCount(), "grade count");
+        expected.forEachStudent(s -> {
+            Student t = actual.findStudentById(s.getId());
+            assertNotNull(t, "student " + s.getId());
+            assertEquals(s.getName(), t.getName());
+            assertEquals(s.getGradeCount(), t.getGradeCount(), "grades of " + s.getId());
+            for (int i = 0; i < s.getGradeCount(); i++) {
+                assertEquals(Double.doubleToLongBits(s.getGrade(i)), Double.doubleToLongBits(t.getGrade(i)),
+                        "grade " + i + " of " + s.getId());
+            }
+        });
+        assertEquals(expected.getClassAverage(), actual.getClassAverage(), 1e-9);
+    }
+}
@@ -0,0 +1,124 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+class ShardedGradeManagerTest {
+    /**
+     * The same random changes on a sharded and a single manager give the
+     * same summary. Whole grades and gradeless students make equal
+     * averages common, so the tie rule is exercised.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void matchesSingleManager(int shardCount) {
+        Random random = new Random(24 + shardCount);
+        ShardedGradeManager sharded = new ShardedGradeManager(shardCount);
+        GradeManager single = new GradeManager();
+        Map<Integer, Student> twins = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(600);
+            int op = random.nextInt(10);
+            if (op < 2) {
+                if (single.findStudentById(id) == null) {
+                    Student a = new Student("S" + id, id);
+                    Student b = new Student("S" + id, id);
+                    sharded.addStudent(a);
+                    single.addStudent(b);
+                    twins.put(id, b);
+                }
+            } else if (op == 2) {
+                assertEquals(single.removeStudent(id), sharded.removeStudent(id));
+            } else {
+                double grade = random.nextInt(5) * 25;
+                assertEquals(single.addGrade(id, grade), sharded.addGrade(id, grade));
+            }
+            if (step % 250 == 0) {
+                ClassSummary expected = single.getClassSummary();
+                ClassSummary actual = sharded.getClassSummary();
+                assertEquals(expected.getStudentCount(), actual.getStudentCount());
+                if (shardCount == 1) {
+                    assertEquals(expected.getClassAverage(), actual.getClassAverage(), 0.0);
+                } else {
+                    assertEquals(expected.getClassAverage(), actual.getClassAverage(), 1e-12);
+                }
+                assertEquals(expected.getClassHighest(), actual.getClassHighest());
+                assertEquals(expected.getClassLowest(), actual.getClassLowest());
+                assertSame(expected.getTopStudent(), twin(twins, actual.getTopStudent()));
+                assertSame(expected.getBottomStudent(), twin(twins, actual.getBottomStudent()));
+                assertEquals(expected.getGradeCount(), actual.getGradeCount());
+            }
+        }
+    }
+
+    @Test
+    void tiesFollowTheOrderOfAdditionAcrossShards() {
+        ShardedGradeManager sharded = new ShardedGradeManager(4);
+        int first = 0;
+        int second = 1;
+        while (sharded.shardOf(second) == sharded.shardOf(first)) {
+            second++;
+        }
+        int shardOfSecond = sharded.shardOf(second);
+        int id = second;
+        sharded.addStudent(new Student("First", first));
+        sharded.withShard(shardOfSecond, m -> m.addStudent(new Student("Second", id)));
+        sharded.addGrade(first, 80);
+        sharded.addGrade(second, 80);
+        assertEquals(first, sharded.getClassSummary().getTopStudent().getId());
+
+        // Added again, the first student now comes last
+        sharded.removeStudent(first);
+        assertEquals(second, sharded.getClassSummary().getTopStudent().getId());
+        sharded.addStudent(new Student("First", first));
+        sharded.addGrade(first, 80);
+        ClassSummary summary = sharded.getClassSummary();
+        assertEquals(second, summary.getTopStudent().getId());
+        assertEquals(second, summary.getBottomStudent().getId());
+        // Nothing changed, so nothing is merged again
+        assertSame(summary, sharded.getClassSummary());
+    }
+
+    @Test
+    void callersCannotBlockShardsThroughTheirManager() throws Exception {
+        ShardedGradeManager sharded = new ShardedGradeManager(1);
+        GradeManager[] shard = new GradeManager[1];
+        sharded.withShard(0, m -> shard[0] = m);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (shard[0]) {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        try {
+            sharded.addStudent(new Student("Alice", 1));
+            assertTrue(sharded.addGrade(1, 90));
+            assertEquals(1, sharded.getStudentCount());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    private static Student twin(Map<Integer, Student> twins, Student s) {
+        return s == null ? null : twins.get(s.getId());
+    }
+}
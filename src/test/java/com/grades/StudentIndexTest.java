@@ -0,0 +1,56 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StudentIndexTest {
+    /**
+     * Random puts and removes over a small key range, so probe chains
+     * wrap and deletions shift entries back, checked against a HashMap
+     */
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(5);
+        StudentIndex index = new StudentIndex();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            int id = random.nextInt(2000) - 1000;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                Integer previous = expected.remove(id);
+                assertEquals(previous == null ? -1 : previous, index.remove(id));
+            } else if (op == 1) {
+                int slot = random.nextInt(1_000_000);
+                Integer previous = expected.put(id, slot);
+                assertEquals(previous == null ? -1 : previous, index.put(id, slot));
+            } else {
+                Integer slot = expected.get(id);
+                assertEquals(slot == null ? -1 : slot, index.get(id));
+            }
+            assertEquals(expected.size(), index.size());
+        }
+        for (int id = -1000; id < 1000; id++) {
+            Integer slot = expected.get(id);
+            assertEquals(slot == null ? -1 : slot, index.get(id), "id " + id);
+        }
+    }
+
+    @Test
+    void removesEveryKeyOfAFullTable() {
+        StudentIndex index = new StudentIndex();
+        for (int i = 0; i < 10_000; i++) {
+            index.put(i * 16, i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            assertEquals(i, index.remove(i * 16));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i % 2 == 0 ? -1 : i, index.get(i * 16));
+        }
+        assertEquals(5_000, index.size());
+    }
+}
@@ -0,0 +1,143 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the incrementally maintained statistics of Student and
+ * GradeManager against a full scan of the grades
+ */
+class StudentStatisticsTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void studentStatisticsMatchFullScan() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 200; trial++) {
+            Student student = new Student("S", trial);
+            List<Double> grades = new ArrayList<>();
+            int count = random.nextInt(300);
+            // Some students switch to full doubles part-way through
+            int widenAt = trial % 4 == 0 ? random.nextInt(count + 1) : Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                double grade = Rosters.grade(random, i >= widenAt ? 2 : trial % 2);
+                student.addGrade(grade);
+                grades.add(grade);
+                assertMatchesScan(grades, student);
+            }
+        }
+    }
+
+    @Test
+    void emptyStudentReportsZeros() {
+        Student student = new Student("S", 1);
+        assertMatchesScan(new ArrayList<>(), student);
+    }
+
+    @Test
+    void classStatisticsMatchFullScanUnderAddsAndRemoves() {
+        Random random = new Random(3);
+        GradeManager manager = new GradeManager();
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(400);
+            int op = random.nextInt(10);
+            if (op < 2) {
+                if (manager.findStudentById(id) == null) {
+                    Student student = new Student("S" + id, id);
+                    if (op == 0) {
+                        student.addGrade(Rosters.grade(random, 1));
+                    }
+                    manager.addStudent(student);
+                }
+            } else if (op == 2) {
+                manager.removeStudent(id);
+            } else if (op == 3) {
+                int[] ids = {id, random.nextInt(400)};
+                double[] grades = {Rosters.grade(random, 0), Rosters.grade(random, 2)};
+                manager.addGrades(ids, grades);
+            } else if (manager.findStudentById(id) != null) {
+                manager.addGrade(id, Rosters.grade(random, op % 3));
+            }
+            if (step % 50 == 0) {
+                assertClassMatchesScan(manager);
+            }
+        }
+        assertClassMatchesScan(manager);
+    }
+
+    private static void assertMatchesScan(List<Double> grades, Student student) {
+        double sum = 0;
+        double highest = 0;
+        double lowest = 0;
+        for (int i = 0; i < grades.size(); i++) {
+            double g = grades.get(i);
+            sum += g;
+            highest = i == 0 ? g : Math.max(highest, g);
+            lowest = i == 0 ? g : Math.min(lowest, g);
+        }
+        double average = grades.isEmpty() ? 0.0 : sum / grades.size();
+        assertEquals(grades.size(), student.getGradeCount());
+        assertEquals(average, student.getAverageGrade(), TOLERANCE);
+        assertEquals(sum, student.getGradeSum(), TOLERANCE * Math.max(1, sum));
+        assertEquals(highest, student.getHighestGrade());
+        assertEquals(lowest, student.getLowestGrade());
+        assertEquals(Student.letterGrade(average), student.getLetterGrade());
+        assertHistogramMatches(grades, student.getHistogram());
+    }
+
+    private static void assertClassMatchesScan(GradeManager manager) {
+        List<Double> all = new ArrayList<>();
+        double[] sum = {0};
+        double[] highest = {0};
+        double[] lowest = {0};
+        Student[] top = {null};
+        Student[] bottom = {null};
+        int[] count = {0};
+        // Insertion order, so the first of equal averages wins as in GradeManager
+        manager.forEachStudent(s -> {
+            s.forEachGrade(all::add);
+            double average = s.getAverageGrade();
+            sum[0] += average;
+            highest[0] = count[0] == 0 ? s.getHighestGrade() : Math.max(highest[0], s.getHighestGrade());
+            lowest[0] = count[0] == 0 ? s.getLowestGrade() : Math.min(lowest[0], s.getLowestGrade());
+            if (top[0] == null || average > top[0].getAverageGrade()) {
+                top[0] = s;
+            }
+            if (bottom[0] == null || average < bottom[0].getAverageGrade()) {
+                bottom[0] = s;
+            }
+            count[0]++;
+        });
+        ClassSummary summary = manager.getClassSummary();
+        assertEquals(count[0], summary.getStudentCount());
+        assertEquals(all.size(), summary.getGradeCount());
+        assertEquals(count[0] == 0 ? 0.0 : sum[0] / count[0], summary.getClassAverage(), TOLERANCE);
+        assertEquals(highest[0], summary.getClassHighest());
+        assertEquals(lowest[0], summary.getClassLowest());
+        assertEquals(top[0], summary.getTopStudent());
+        assertEquals(bottom[0], summary.getBottomStudent());
+        assertHistogramMatches(all, manager.getGradeHistogram());
+    }
+
+    private static void assertHistogramMatches(List<Double> grades, GradeHistogram histogram) {
+        int n = grades.size();
+        double[] buckets = new double[n];
+        long[] letters = new long[5];
+        String order = "ABCDF";
+        for (int i = 0; i < n; i++) {
+            buckets[i] = GradeHistogram.bucketOf(grades.get(i)) / 10.0;
+            letters[order.indexOf(Student.letterGrade(buckets[i]))]++;
+        }
+        Arrays.sort(buckets);
+        double median = n == 0 ? 0.0 : n % 2 == 1 ? buckets[n / 2] : (buckets[n / 2 - 1] + buckets[n / 2]) / 2;
+        assertEquals(n, histogram.getCount());
+        assertEquals(median, histogram.getMedian(), TOLERANCE);
+        assertArrayEquals(letters, histogram.getLetterCounts());
+    }
+}
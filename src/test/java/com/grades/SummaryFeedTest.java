@@ -0,0 +1,280 @@
+package com.grades;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SummaryFeedTest {
+    private final Object lock = new Object();
+    private final GradeManager manager = new GradeManager();
+    private final ManualExecutor executor = new ManualExecutor();
+
+    private void addStudents(int count) {
+        synchronized (lock) {
+            for (int id = 0; id < count; id++) {
+                manager.addStudent(new Student("S" + id, id));
+            }
+        }
+    }
+
+    private void grade(int id, double grade) {
+        synchronized (lock) {
+            manager.addGrade(id, grade);
+        }
+    }
+
+    @Test
+    void newSubscriberFirstReceivesTheLatestState() {
+        addStudents(3);
+        grade(0, 90);
+        SummaryFeed feed = new SummaryFeed(manager, lock, executor, 4);
+        Recorder first = new Recorder();
+        feed.subscribe(first);
+        executor.runAll();
+        assertTrue(first.subscribed);
+        // Nothing is sent before it is requested
+        assertEquals(0, first.deltas.size());
+        first.subscription.request(1);
+        executor.runAll();
+        assertEquals(1, first.deltas.size());
+        SummaryFeed.Delta initial = first.deltas.get(0);
+        assertTrue(initial.isInitial());
+        assertEquals(manager.getVersion(), initial.getVersion());
+        assertEquals(3, initial.getSummary().getStudentCount());
+        assertEquals(1, initial.getLetterChanges()[0]);
+
+        // A later subscriber starts from the state the feed already has
+        grade(1, 50);
+        executor.runAll();
+        Recorder second = new Recorder();
+        feed.subscribe(second);
+        executor.runAll();
+        second.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        assertEquals(1, second.deltas.size());
+        assertTrue(second.deltas.get(0).isInitial());
+        assertEquals(manager.getVersion(), second.deltas.get(0).getVersion());
+        assertEquals(2, second.deltas.get(0).getSummary().getGradeCount());
+    }
+
+    @Test
+    void burstOfChangesIsCoalescedIntoOneRefresh() {
+        addStudents(10);
+        SummaryFeed feed = new SummaryFeed(manager, lock, executor, 4);
+        Recorder recorder = new Recorder();
+        feed.subscribe(recorder);
+        executor.runAll();
+        recorder.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        assertEquals(1, recorder.deltas.size());
+
+        for (int i = 0; i < 1000; i++) {
+            grade(i % 10, i % 101);
+        }
+        // Only the first change of the burst started a refresh
+        assertEquals(1, executor.queued());
+        executor.runAll();
+        assertEquals(2, recorder.deltas.size());
+        SummaryFeed.Delta delta = recorder.deltas.get(1);
+        assertFalse(delta.isInitial());
+        assertEquals(manager.getVersion(), delta.getVersion());
+        assertEquals(1000, delta.getSummary().getGradeCount());
+    }
+
+    @Test
+    void slowSubscriberGetsMergedDeltasWithinItsDemand() {
+        addStudents(5);
+        SummaryFeed feed = new SummaryFeed(manager, lock, executor, 4);
+        Recorder recorder = new Recorder();
+        feed.subscribe(recorder);
+        executor.runAll();
+        recorder.subscription.request(1);
+        executor.runAll();
+        long[] letters = recorder.deltas.get(0).getLetterChanges();
+
+        // One refresh per grade while the subscriber asks for nothing
+        for (int i = 0; i < 20; i++) {
+            grade(i % 5, i * 5);
+            executor.runAll();
+        }
+        assertEquals(1, recorder.deltas.size());
+
+        recorder.subscription.request(2);
+        executor.runAll();
+        assertEquals(3, recorder.deltas.size());
+        recorder.subscription.request(10);
+        executor.runAll();
+        // The buffer held at most 4, the last one merging the rest
+        assertEquals(5, recorder.deltas.size());
+        SummaryFeed.Delta last = recorder.deltas.get(4);
+        assertEquals(manager.getVersion(), last.getVersion());
+        assertEquals(20, last.getSummary().getGradeCount());
+        // No change was lost: the letter changes add up to the final counts
+        for (int i = 1; i < recorder.deltas.size(); i++) {
+            assertTrue(recorder.deltas.get(i).getVersion() > recorder.deltas.get(i - 1).getVersion());
+            long[] changes = recorder.deltas.get(i).getLetterChanges();
+            for (int l = 0; l < letters.length; l++) {
+                letters[l] += changes[l];
+            }
+        }
+        assertArrayEquals(last.getSummary().getLetterCounts(), letters);
+    }
+
+    @Test
+    void nothingIsSignalledAfterCancel() {
+        addStudents(2);
+        SummaryFeed feed = new SummaryFeed(manager, lock, executor, 4);
+        Recorder recorder = new Recorder();
+        feed.subscribe(recorder);
+        executor.runAll();
+        recorder.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        grade(0, 80);
+        executor.runAll();
+        assertEquals(2, recorder.deltas.size());
+
+        // Changes already buffered are dropped too
+        grade(1, 70);
+        recorder.subscription.cancel();
+        executor.runAll();
+        assertEquals(0, feed.getSubscriberCount());
+        grade(0, 60);
+        executor.runAll();
+        feed.close();
+        executor.runAll();
+        assertEquals(2, recorder.deltas.size());
+        assertFalse(recorder.completed);
+        assertEquals(0, recorder.errors.get());
+    }
+
+    @Test
+    void slowSubscriberFollowsABurstOnRealThreads() {
+        addStudents(50);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            SummaryFeed feed = new SummaryFeed(manager, lock, pool, 4);
+            AtomicInteger outstanding = new AtomicInteger();
+            AtomicInteger overruns = new AtomicInteger();
+            List<SummaryFeed.Delta> received = new CopyOnWriteArrayList<>();
+            feed.subscribe(new Flow.Subscriber<SummaryFeed.Delta>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    outstanding.incrementAndGet();
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(SummaryFeed.Delta delta) {
+                    // Never more than was requested
+                    if (outstanding.decrementAndGet() != 0) {
+                        overruns.incrementAndGet();
+                    }
+                    received.add(delta);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    outstanding.incrementAndGet();
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    received.clear();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            for (int i = 0; i < 20_000; i++) {
+                grade(i % 50, i % 101);
+            }
+            long finalVersion = manager.getVersion();
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                while (received.isEmpty() || received.get(received.size() - 1).getVersion() != finalVersion) {
+                    Thread.sleep(5);
+                }
+            });
+            assertEquals(0, overruns.get());
+            assertTrue(received.get(0).isInitial());
+            assertTrue(received.size() < 20_000);
+            assertEquals(20_000, received.get(received.size() - 1).getSummary().getGradeCount());
+            feed.close();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs tasks only when the test asks, on the test's thread
+     */
+    private static final class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int queued() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Records every signal and requests nothing by itself
+     */
+    private static final class Recorder implements Flow.Subscriber<SummaryFeed.Delta> {
+        final List<SummaryFeed.Delta> deltas = new CopyOnWriteArrayList<>();
+        final AtomicInteger errors = new AtomicInteger();
+        Flow.Subscription subscription;
+        boolean subscribed;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed = true;
+        }
+
+        @Override
+        public void onNext(SummaryFeed.Delta delta) {
+            deltas.add(delta);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            errors.incrementAndGet();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}